@@ -0,0 +1,95 @@
+package com.itm.space.backend.client.configuration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A batch of {@code concurrency} parallel GETs through the client the gateway forwards with, against an in-process
+ * server answering like {@code GET /api/users/{id}}. Compares a new connection per request ({@code none}), the fixed
+ * HTTP/1.1 pool from {@code application.yml} ({@code http11}) and the same pool over h2c ({@code h2c}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpstreamClientBenchmark {
+    private static final String USER = "{\"id\":\"0b0c6e8a-3c2d-4a5e-9f10-2b3c4d5e6f70\",\"username\":\"user00001\","
+            + "\"email\":\"user00001@example.com\",\"firstName\":\"First\",\"lastName\":\"Last\","
+            + "\"roles\":[\"MODERATOR\"],\"groups\":[\"Moderators\"]}";
+
+    @Param({"none", "http11", "h2c"})
+    private String pool;
+    @Param({"64"})
+    private int concurrency;
+
+    private DisposableServer server;
+    private HttpClient client;
+    private UpstreamClientConfiguration.UpstreamHttpClientFactory factory;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.H2C, HttpProtocol.HTTP11)
+                .route(routes -> routes.get("/api/users/{id}", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .sendString(Mono.just(USER))))
+                .bindNow();
+
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setConnectTimeout(2000);
+        properties.getPool().setType(pool.equals("none")
+                ? HttpClientProperties.Pool.PoolType.DISABLED
+                : HttpClientProperties.Pool.PoolType.FIXED);
+        properties.getPool().setMaxConnections(200);
+        properties.getPool().setAcquireTimeout(2000L);
+        UpstreamClientProperties upstreamProperties = new UpstreamClientProperties();
+        upstreamProperties.setPendingAcquireMaxCount(400);
+        upstreamProperties.setProtocols(pool.equals("h2c") ? List.of(HttpProtocol.H2C) : List.of(HttpProtocol.HTTP11));
+        UpstreamClientConfiguration configuration = new UpstreamClientConfiguration();
+        factory = (UpstreamClientConfiguration.UpstreamHttpClientFactory) configuration.gatewayHttpClientFactory(
+                properties, new ServerProperties(),
+                new ArrayList<>(List.of(configuration.upstreamProtocolCustomizer(upstreamProperties))),
+                upstreamProperties);
+        factory.afterPropertiesSet();
+        client = factory.getObject().baseUrl("http://localhost:" + server.port());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        factory.destroy();
+        server.disposeNow();
+    }
+
+    @Benchmark
+    public String batch() {
+        return Flux.range(0, concurrency)
+                .flatMap(i -> client.get().uri("/api/users/" + i).responseContent().aggregate().asString(),
+                        concurrency)
+                .blockLast();
+    }
+}
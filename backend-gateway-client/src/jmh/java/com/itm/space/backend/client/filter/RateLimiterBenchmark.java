@@ -0,0 +1,100 @@
+package com.itm.space.backend.client.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time the {@code RequestRateLimiter} filter with {@link LocalRateLimiter} adds to a request, key resolution and
+ * headers included; the rest of the chain does nothing. {@code users} is the number of distinct keys requests are
+ * spread over; run with {@code -t} above 1 to have threads contend on the same bucket. Limits are high enough for
+ * every request to be allowed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class RateLimiterBenchmark {
+    // the exchange is reused, so drop the headers the filter added
+    private static final GatewayFilterChain CHAIN = exchange -> {
+        exchange.getResponse().getHeaders().clear();
+        return Mono.empty();
+    };
+
+    @Param({"1", "10000"})
+    private int users;
+
+    private LocalRateLimiter rateLimiter;
+    private GatewayFilter filter;
+    private UsernamePasswordAuthenticationToken[] principals;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new LocalRateLimiter(null, new SimpleMeterRegistry(), Duration.ofMinutes(1));
+        rateLimiter.getConfig().put("resources", new LocalRateLimiter.Config()
+                .setReplenishRate(1_000_000_000)
+                .setBurstCapacity(1_000_000_000));
+        RequestRateLimiterGatewayFilterFactory factory =
+                new RequestRateLimiterGatewayFilterFactory(rateLimiter, new PrincipalKeyResolver());
+        RequestRateLimiterGatewayFilterFactory.Config config = new RequestRateLimiterGatewayFilterFactory.Config();
+        config.setRouteId("resources");
+        filter = factory.apply(config);
+        principals = new UsernamePasswordAuthenticationToken[users];
+        for (int i = 0; i < users; i++) {
+            principals[i] = new UsernamePasswordAuthenticationToken("user" + i, null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        rateLimiter.destroy();
+    }
+
+    @Benchmark
+    public Void baseline(Request request) {
+        return CHAIN.filter(request.next(principals)).block();
+    }
+
+    @Benchmark
+    public Void rateLimited(Request request) {
+        return filter.filter(request.next(principals), CHAIN).block();
+    }
+
+    @State(Scope.Thread)
+    public static class Request {
+        private final ServerWebExchange exchange =
+                MockServerWebExchange.from(MockServerHttpRequest.get("/api/roles"));
+
+        ServerWebExchange next(UsernamePasswordAuthenticationToken[] principals) {
+            return exchange.mutate()
+                    .principal(Mono.just(principals[ThreadLocalRandom.current().nextInt(principals.length)]))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.itm.space.backend.client.configuration;
+
+import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientPropertiesRegistrationAdapter;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Builds the client registrations on first use instead of at startup, so the gateway comes up while the provider's
+ * discovery endpoint is slow or down. A successful discovery is kept for the lifetime of the application; a failed
+ * one is retried by the next request.
+ */
+class LazyClientRegistrationRepository implements ReactiveClientRegistrationRepository {
+    private static final Duration FOREVER = Duration.ofMillis(Long.MAX_VALUE);
+
+    private final Mono<Map<String, ClientRegistration>> registrations;
+
+    LazyClientRegistrationRepository(OAuth2ClientProperties properties) {
+        this.registrations = Mono
+                .fromCallable(() -> OAuth2ClientPropertiesRegistrationAdapter.getClientRegistrations(properties))
+                .subscribeOn(Schedulers.boundedElastic())
+                .cache(value -> FOREVER, error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    @Override
+    public Mono<ClientRegistration> findByRegistrationId(String registrationId) {
+        return registrations.flatMap(byId -> Mono.justOrEmpty(byId.get(registrationId)));
+    }
+}
@@ -0,0 +1,33 @@
+package com.itm.space.backend.client.configuration;
+
+import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.RedirectServerAuthenticationEntryPoint;
+
+@Configuration
+public class SecurityConfiguration {
+
+    @Bean
+    public ReactiveClientRegistrationRepository clientRegistrationRepository(OAuth2ClientProperties properties) {
+        return new LazyClientRegistrationRepository(properties);
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, OAuth2ClientProperties properties) {
+        // the lazy repository cannot list registrations for the login page, so send users straight to the provider
+        String registrationId = properties.getRegistration().keySet().iterator().next();
+        return http
+                .authorizeExchange(exchanges -> exchanges.anyExchange().authenticated())
+                .oauth2Login(login -> {
+                })
+                .oauth2Client(client -> {
+                })
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(
+                        new RedirectServerAuthenticationEntryPoint("/oauth2/authorization/" + registrationId)))
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.itm.space.backend.client.configuration;
+
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Connection pool and protocols of the client routes are forwarded with.
+ * <p>
+ * The pool is configured under {@code spring.cloud.gateway.httpclient.pool} as usual; this adds a bound on the
+ * requests waiting for a connection and HTTP/2 (h2c) to upstream services, set under {@code gateway.upstream}. With
+ * {@code spring.cloud.gateway.httpclient.pool.metrics} on, the pool's {@code reactor.netty.connection.provider.*}
+ * gauges are exported with the other metrics.
+ */
+@Configuration
+@EnableConfigurationProperties(UpstreamClientProperties.class)
+public class UpstreamClientConfiguration {
+
+    @Bean
+    public HttpClientFactory gatewayHttpClientFactory(HttpClientProperties properties,
+                                                      ServerProperties serverProperties,
+                                                      List<HttpClientCustomizer> customizers,
+                                                      UpstreamClientProperties upstreamProperties) {
+        return new UpstreamHttpClientFactory(properties, serverProperties, customizers, upstreamProperties);
+    }
+
+    @Bean
+    public HttpClientCustomizer upstreamProtocolCustomizer(UpstreamClientProperties upstreamProperties) {
+        HttpProtocol[] protocols = upstreamProperties.getProtocols().toArray(HttpProtocol[]::new);
+        long maxConcurrentStreams = upstreamProperties.getMaxConcurrentStreams();
+        return httpClient -> {
+            httpClient = httpClient.protocol(protocols);
+            if (maxConcurrentStreams > 0) {
+                httpClient = httpClient.http2Settings(settings -> settings.maxConcurrentStreams(maxConcurrentStreams));
+            }
+            return httpClient;
+        };
+    }
+
+    /**
+     * Builds the pool like {@link HttpClientFactory}, which leaves the queue of a fixed pool unbounded.
+     */
+    static class UpstreamHttpClientFactory extends HttpClientFactory {
+        private final UpstreamClientProperties upstreamProperties;
+
+        UpstreamHttpClientFactory(HttpClientProperties properties,
+                                  ServerProperties serverProperties,
+                                  List<HttpClientCustomizer> customizers,
+                                  UpstreamClientProperties upstreamProperties) {
+            super(properties, serverProperties, customizers);
+            this.upstreamProperties = upstreamProperties;
+        }
+
+        @Override
+        protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+            HttpClientProperties.Pool pool = properties.getPool();
+            if (pool.getType() == HttpClientProperties.Pool.PoolType.DISABLED) {
+                return ConnectionProvider.newConnection();
+            }
+            ConnectionProvider.Builder builder = ConnectionProvider.builder(pool.getName());
+            if (pool.getType() == HttpClientProperties.Pool.PoolType.FIXED) {
+                builder.maxConnections(pool.getMaxConnections())
+                        .pendingAcquireMaxCount(upstreamProperties.getPendingAcquireMaxCount())
+                        .pendingAcquireTimeout(Duration.ofMillis(pool.getAcquireTimeout()));
+            } else {
+                builder.maxConnections(Integer.MAX_VALUE)
+                        .pendingAcquireMaxCount(-1)
+                        .pendingAcquireTimeout(Duration.ofMillis(0));
+            }
+            if (pool.getMaxIdleTime() != null) {
+                builder.maxIdleTime(pool.getMaxIdleTime());
+            }
+            if (pool.getMaxLifeTime() != null) {
+                builder.maxLifeTime(pool.getMaxLifeTime());
+            }
+            return builder.evictInBackground(pool.getEvictionInterval())
+                    .metrics(pool.isMetrics())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.itm.space.backend.client.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import reactor.netty.http.HttpProtocol;
+
+import java.util.List;
+
+/**
+ * Settings of the client the gateway forwards requests with that {@code spring.cloud.gateway.httpclient} lacks.
+ */
+@ConfigurationProperties("gateway.upstream")
+public class UpstreamClientProperties {
+    /**
+     * Protocols to talk to upstream services with: {@code HTTP11}, {@code H2C} (HTTP/2 without TLS, by prior
+     * knowledge) or both ({@code H2C} by upgrade from HTTP/1.1).
+     */
+    private List<HttpProtocol> protocols = List.of(HttpProtocol.HTTP11);
+
+    /**
+     * Requests that may wait for a connection of a fixed pool; further ones fail right away. -1 for no limit.
+     */
+    private int pendingAcquireMaxCount = -1;
+
+    /**
+     * Streams the gateway opens at most on one HTTP/2 connection; 0 leaves it to the server.
+     */
+    private long maxConcurrentStreams;
+
+    public List<HttpProtocol> getProtocols() {
+        return protocols;
+    }
+
+    public void setProtocols(List<HttpProtocol> protocols) {
+        this.protocols = protocols;
+    }
+
+    public int getPendingAcquireMaxCount() {
+        return pendingAcquireMaxCount;
+    }
+
+    public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+        this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+    }
+
+    public long getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    public void setMaxConcurrentStreams(long maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+}
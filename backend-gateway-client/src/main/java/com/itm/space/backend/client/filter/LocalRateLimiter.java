@@ -0,0 +1,160 @@
+package com.itm.space.backend.client.filter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory token bucket for the {@code RequestRateLimiter} filter, so rate limiting works without Redis.
+ * <p>
+ * Limits are set per route under the filter's {@code local-rate-limiter} args, like those of the Redis rate limiter:
+ * {@code replenish-rate} tokens per second, up to {@code burst-capacity}, {@code requested-tokens} per request.
+ * Each key's bucket is a single {@code long}, the time at which it will be full again (the generic cell rate
+ * algorithm), updated with compare-and-set; buckets live in a {@link ConcurrentHashMap} per route, so requests for
+ * different keys never contend. Buckets that have filled up are dropped every {@code gateway.rate-limit.sweep-interval}.
+ * <p>
+ * Responses carry {@code RateLimit-Limit}, {@code RateLimit-Remaining} and {@code RateLimit-Reset} (seconds until the
+ * bucket is full), plus {@code Retry-After} when the request is denied. Limits apply per gateway instance.
+ */
+@Component
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> implements DisposableBean {
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+    public static final String LIMIT_HEADER = "RateLimit-Limit";
+    public static final String REMAINING_HEADER = "RateLimit-Remaining";
+    public static final String RESET_HEADER = "RateLimit-Reset";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, ConcurrentHashMap<String, AtomicLong>> buckets = new ConcurrentHashMap<>();
+    private final Scheduler sweeper = Schedulers.newSingle("rate-limit-sweep", true);
+    private final Disposable sweep;
+
+    public LocalRateLimiter(ConfigurationService configurationService,
+                            MeterRegistry meterRegistry,
+                            @Value("${gateway.rate-limit.sweep-interval:1m}") Duration sweepInterval) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.sweep = sweeper.schedulePeriodically(this::evictFullBuckets, sweepInterval.toMillis(),
+                sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+        Gauge.builder("gateway.ratelimit.buckets", buckets,
+                        routes -> routes.values().stream().mapToInt(Map::size).sum())
+                .description("Keys with a partly used rate limit bucket")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().get(routeId);
+        if (config == null) {
+            throw new IllegalArgumentException("No local-rate-limiter configuration found for route " + routeId);
+        }
+        return Mono.just(tryAcquire(routeId, id, config, System.nanoTime()));
+    }
+
+    Response tryAcquire(String routeId, String id, Config config, long now) {
+        long tokenNanos = NANOS_PER_SECOND / config.getReplenishRate();
+        long capacityNanos = tokenNanos * config.getBurstCapacity();
+        long costNanos = tokenNanos * config.getRequestedTokens();
+        AtomicLong bucket = buckets.computeIfAbsent(routeId, route -> new ConcurrentHashMap<>())
+                .computeIfAbsent(id, key -> new AtomicLong(now));
+        while (true) {
+            long fullAt = bucket.get();
+            long used = Math.max(fullAt - now, 0);
+            long backlog = used + costNanos;
+            if (backlog > capacityNanos) {
+                return response(false, config, (capacityNanos - used) / tokenNanos, used, backlog - capacityNanos);
+            }
+            if (bucket.compareAndSet(fullAt, now + backlog)) {
+                return response(true, config, (capacityNanos - backlog) / tokenNanos, backlog, 0);
+            }
+        }
+    }
+
+    /**
+     * A full bucket is the same as no bucket. A request racing the removal may take a token from the dropped bucket,
+     * which at worst lets one extra request through.
+     */
+    void evictFullBuckets() {
+        long now = System.nanoTime();
+        buckets.values().forEach(routeBuckets -> routeBuckets.values().removeIf(bucket -> bucket.get() - now <= 0));
+    }
+
+    @Override
+    public void destroy() {
+        sweep.dispose();
+        sweeper.dispose();
+    }
+
+    private static Response response(boolean allowed, Config config, long remaining, long untilFullNanos,
+                                     long retryAfterNanos) {
+        Map<String, String> headers = new LinkedHashMap<>(4);
+        headers.put(LIMIT_HEADER, Integer.toString(config.getBurstCapacity()));
+        headers.put(REMAINING_HEADER, Long.toString(Math.max(remaining, 0)));
+        headers.put(RESET_HEADER, Long.toString(ceilSeconds(untilFullNanos)));
+        if (!allowed) {
+            headers.put(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(ceilSeconds(retryAfterNanos), 1)));
+        }
+        return new Response(allowed, headers);
+    }
+
+    private static long ceilSeconds(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+    }
+
+    public static class Config {
+        private int replenishRate = 1;
+        private int burstCapacity = 1;
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            if (replenishRate < 1) {
+                throw new IllegalArgumentException("replenish-rate must be at least 1");
+            }
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            if (burstCapacity < 1) {
+                throw new IllegalArgumentException("burst-capacity must be at least 1");
+            }
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            if (requestedTokens < 1) {
+                throw new IllegalArgumentException("requested-tokens must be at least 1");
+            }
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.itm.space.backend.client.filter;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rate limit key of a request: the logged-in user. Only users logging in through the browser flow have a session
+ * here, so there is no service account to key by client. Requests without a principal have no key and are denied by
+ * the filter.
+ */
+@Component
+public class PrincipalKeyResolver implements KeyResolver {
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        return exchange.getPrincipal().map(principal -> "user:" + principal.getName());
+    }
+}
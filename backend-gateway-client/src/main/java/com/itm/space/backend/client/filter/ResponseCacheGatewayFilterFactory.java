@@ -0,0 +1,379 @@
+package com.itm.space.backend.client.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches successful GET responses of a route in memory, per authenticated user, so repeated reads do not cross the
+ * hop to the upstream service.
+ * <p>
+ * Entries are keyed by principal name, path, query and {@code Accept}; requests without a principal are never cached.
+ * Upstream {@code Cache-Control} is honoured: {@code no-store} responses are not kept, {@code max-age} shortens the
+ * route's {@code timeToLive}, and {@code no-cache} responses are revalidated on every hit. Expired entries with an
+ * {@code ETag} are revalidated with {@code If-None-Match}; a 304 from upstream serves the cached body. A GET with
+ * {@code Cache-Control: no-store} skips the cache, and any other method drops the user's entries for its path.
+ * <p>
+ * The body is copied while it streams to the client, up to {@code maxEntrySize}; cached bodies are written from
+ * memory without blocking. Each route has its own cache, bounded by {@code maxSize} bytes.
+ * {@code gateway.cache.requests} counts hits, revalidations, misses and bypasses per route, and
+ * {@code gateway.cache.hit.ratio} is the share of cacheable requests answered from the cache.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+    private static final Set<String> UNSTORED_HEADERS = Set.of(HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION,
+            HttpHeaders.SET_COOKIE, HttpHeaders.CONTENT_LENGTH);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ResponseCacheFilter> filters = new ConcurrentHashMap<>();
+
+    public ResponseCacheGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // routes are rebuilt on every refresh; keep the route's cache unless its settings changed
+        ResponseCacheFilter filter = filters.compute(String.valueOf(config.getRouteId()), (route, existing) -> {
+            if (existing != null && existing.hasSettingsOf(config)) {
+                return existing;
+            }
+            if (existing != null) {
+                existing.removeGauges();
+            }
+            return new ResponseCacheFilter(config);
+        });
+        // ahead of NettyWriteResponseFilter, so it writes through the caching response
+        return new OrderedGatewayFilter(filter, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    public static class Config implements HasRouteId {
+        private String routeId;
+        private Duration timeToLive = Duration.ofMinutes(1);
+        private DataSize maxSize = DataSize.ofMegabytes(16);
+        private DataSize maxEntrySize = DataSize.ofKilobytes(256);
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public DataSize getMaxEntrySize() {
+            return maxEntrySize;
+        }
+
+        public void setMaxEntrySize(DataSize maxEntrySize) {
+            this.maxEntrySize = maxEntrySize;
+        }
+    }
+
+    private record Key(String principal, String path, String query, String accept) {
+    }
+
+    private record CachedResponse(HttpHeaders headers, byte[] body, String etag, long freshUntilNanos) {
+        boolean isFresh() {
+            return System.nanoTime() - freshUntilNanos < 0;
+        }
+    }
+
+    private class ResponseCacheFilter implements GatewayFilter {
+        private final Config config;
+        private final Cache<Key, CachedResponse> cache;
+        private final Counter hits;
+        private final Counter revalidated;
+        private final Counter misses;
+        private final Counter bypassed;
+        private final List<Gauge> gauges;
+
+        ResponseCacheFilter(Config config) {
+            this.config = config;
+            this.cache = Caffeine.newBuilder()
+                    .maximumWeight(config.getMaxSize().toBytes())
+                    .weigher((Key key, CachedResponse response) -> response.body().length + 256)
+                    .expireAfterWrite(config.getTimeToLive())
+                    .build();
+            String route = String.valueOf(config.getRouteId());
+            this.hits = requests(route, "hit");
+            this.revalidated = requests(route, "revalidated");
+            this.misses = requests(route, "miss");
+            this.bypassed = requests(route, "bypass");
+            Gauge hitRatio = Gauge.builder("gateway.cache.hit.ratio", this, ResponseCacheFilter::hitRatio)
+                    .description("Share of cacheable GET requests answered from the gateway cache")
+                    .tag("route", route)
+                    .register(meterRegistry);
+            Gauge entries = Gauge.builder("gateway.cache.entries", cache, Cache::estimatedSize)
+                    .description("Responses held in the gateway cache")
+                    .tag("route", route)
+                    .register(meterRegistry);
+            this.gauges = List.of(hitRatio, entries);
+        }
+
+        boolean hasSettingsOf(Config other) {
+            return config.getTimeToLive().equals(other.getTimeToLive())
+                    && config.getMaxSize().equals(other.getMaxSize())
+                    && config.getMaxEntrySize().equals(other.getMaxEntrySize());
+        }
+
+        void removeGauges() {
+            gauges.forEach(meterRegistry::remove);
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            ServerHttpRequest request = exchange.getRequest();
+            Mono<String> principal = exchange.getPrincipal().map(Principal::getName).defaultIfEmpty("");
+            if (request.getMethod() != HttpMethod.GET) {
+                if (request.getMethod() == HttpMethod.HEAD || request.getMethod() == HttpMethod.OPTIONS) {
+                    return chain.filter(exchange);
+                }
+                return principal.doOnNext(name -> invalidate(name, request.getPath().value()))
+                        .then(chain.filter(exchange));
+            }
+            if (hasDirective(request.getHeaders(), "no-store")) {
+                bypassed.increment();
+                return chain.filter(exchange);
+            }
+            return principal.flatMap(name -> {
+                if (name.isEmpty()) {
+                    bypassed.increment();
+                    return chain.filter(exchange);
+                }
+                Key key = new Key(name, request.getPath().value(), request.getURI().getRawQuery(),
+                        request.getHeaders().getFirst(HttpHeaders.ACCEPT));
+                CachedResponse cached = cache.getIfPresent(key);
+                List<String> ifNoneMatch = List.copyOf(request.getHeaders().getIfNoneMatch());
+                if (cached != null && cached.isFresh() && !hasDirective(request.getHeaders(), "no-cache")) {
+                    hits.increment();
+                    return writeCached(exchange.getResponse(), cached, ifNoneMatch);
+                }
+                if (cached != null && cached.etag() != null) {
+                    // the builder may write through to the original headers, hence the copy above
+                    ServerHttpRequest conditional = request.mutate()
+                            .headers(headers -> headers.setIfNoneMatch(cached.etag()))
+                            .build();
+                    return chain.filter(exchange.mutate()
+                            .request(conditional)
+                            .response(new CachingResponse(exchange.getResponse(), key, cached, ifNoneMatch))
+                            .build());
+                }
+                misses.increment();
+                return chain.filter(exchange.mutate()
+                        .response(new CachingResponse(exchange.getResponse(), key, null, List.of()))
+                        .build());
+            });
+        }
+
+        private Mono<Void> writeCached(ServerHttpResponse response, CachedResponse cached, List<String> ifNoneMatch) {
+            response.getHeaders().putAll(cached.headers());
+            if (cached.etag() != null && matches(ifNoneMatch, cached.etag())) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                return response.setComplete();
+            }
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentLength(cached.body().length);
+            return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+        }
+
+        private void invalidate(String principal, String path) {
+            cache.asMap().keySet().removeIf(key -> key.principal().equals(principal) && key.path().equals(path));
+        }
+
+        private Counter requests(String route, String result) {
+            return Counter.builder("gateway.cache.requests")
+                    .description("GET requests seen by the gateway cache")
+                    .tag("route", route)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        private double hitRatio() {
+            double served = hits.count() + revalidated.count();
+            double total = served + misses.count();
+            return total == 0 ? Double.NaN : served / total;
+        }
+
+        /**
+         * Copies the body as it streams to the client and stores it once complete; answers a 304 to a revalidation
+         * with the cached body.
+         */
+        private class CachingResponse extends ServerHttpResponseDecorator {
+            private final Key key;
+            private final CachedResponse revalidating;
+            private final List<String> clientIfNoneMatch;
+
+            CachingResponse(ServerHttpResponse delegate, Key key, CachedResponse revalidating,
+                            List<String> clientIfNoneMatch) {
+                super(delegate);
+                this.key = key;
+                this.revalidating = revalidating;
+                this.clientIfNoneMatch = clientIfNoneMatch;
+            }
+
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                // the upstream's headers; security headers are only added when the response commits
+                HttpHeaders headers = storedHeaders(getHeaders());
+                if (revalidating != null && getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                    revalidated.increment();
+                    CachedResponse refreshed = new CachedResponse(revalidating.headers(), revalidating.body(),
+                            revalidating.etag(), System.nanoTime() + freshFor(headers).toNanos());
+                    cache.put(key, refreshed);
+                    return Flux.from(body).doOnNext(DataBufferUtils::release)
+                            .then(Mono.defer(() -> writeCached(getDelegate(), refreshed, clientIfNoneMatch)));
+                }
+                if (revalidating != null) {
+                    misses.increment();
+                }
+                if (getStatusCode() != HttpStatus.OK || !isStorable(headers)) {
+                    cache.invalidate(key);
+                    return super.writeWith(body);
+                }
+                long maxEntrySize = config.getMaxEntrySize().toBytes();
+                ByteArrayOutputStream copy = new ByteArrayOutputStream();
+                boolean[] tooLarge = {false};
+                Flux<DataBuffer> copying = Flux.from(body)
+                        .map(buffer -> {
+                            if (!tooLarge[0]) {
+                                if (copy.size() + buffer.readableByteCount() > maxEntrySize) {
+                                    tooLarge[0] = true;
+                                } else {
+                                    ByteBuffer view = buffer.asByteBuffer();
+                                    byte[] bytes = new byte[view.remaining()];
+                                    view.get(bytes);
+                                    copy.writeBytes(bytes);
+                                }
+                            }
+                            return (DataBuffer) buffer;
+                        })
+                        .doOnComplete(() -> {
+                            if (!tooLarge[0]) {
+                                cache.put(key, new CachedResponse(headers, copy.toByteArray(),
+                                        headers.getETag(), System.nanoTime() + freshFor(headers).toNanos()));
+                            }
+                        });
+                return super.writeWith(copying);
+            }
+
+            private boolean isStorable(HttpHeaders headers) {
+                if (hasDirective(headers, "no-store") || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+                    return false;
+                }
+                if (headers.getVary().contains("*")) {
+                    return false;
+                }
+                // an entry that is stale right away is only worth keeping if it can be revalidated
+                return headers.getETag() != null || !freshFor(headers).isZero();
+            }
+
+            private Duration freshFor(HttpHeaders headers) {
+                if (hasDirective(headers, "no-cache")) {
+                    return Duration.ZERO;
+                }
+                Duration timeToLive = config.getTimeToLive();
+                String cacheControl = headers.getCacheControl();
+                if (cacheControl != null) {
+                    for (String directive : cacheControl.split(",")) {
+                        String trimmed = directive.strip().toLowerCase(Locale.ROOT);
+                        if (trimmed.startsWith("max-age=")) {
+                            try {
+                                Duration maxAge = Duration.ofSeconds(Long.parseLong(trimmed.substring(8)));
+                                return maxAge.compareTo(timeToLive) < 0 ? maxAge : timeToLive;
+                            } catch (NumberFormatException ex) {
+                                return Duration.ZERO;
+                            }
+                        }
+                    }
+                }
+                return timeToLive;
+            }
+
+            private HttpHeaders storedHeaders(HttpHeaders headers) {
+                HttpHeaders stored = new HttpHeaders();
+                headers.forEach((name, values) -> {
+                    if (UNSTORED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                        stored.put(name, List.copyOf(values));
+                    }
+                });
+                return HttpHeaders.readOnlyHttpHeaders(stored);
+            }
+        }
+    }
+
+    private static boolean hasDirective(HttpHeaders headers, String directive) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String candidate : cacheControl.split(",")) {
+            if (candidate.strip().equalsIgnoreCase(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        for (String header : ifNoneMatch) {
+            String tag = header.strip();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,66 @@
+package com.itm.space.backend.client.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.mockOAuth2Login;
+
+@SpringBootTest(properties = {
+        "spring.cloud.gateway.default-filters[0]=RemoveRequestHeader=Cookie",
+        "spring.cloud.gateway.httpclient.pool.type=fixed",
+        "spring.cloud.gateway.httpclient.pool.max-connections=4",
+        "spring.cloud.gateway.httpclient.pool.metrics=true",
+        "gateway.upstream.protocols=H2C"
+})
+@AutoConfigureWebTestClient
+class UpstreamClientConfigurationTests {
+    private static final DisposableServer upstream = HttpServer.create()
+            .port(0)
+            .protocol(HttpProtocol.H2C, HttpProtocol.HTTP11)
+            // HTTP/2 streams are handed over as HTTP/1.1 requests with the stream id in a header
+            .route(routes -> routes.get("/api/stream", (request, response) -> response.sendString(
+                    Mono.justOrEmpty(request.requestHeaders().get("x-http2-stream-id")).defaultIfEmpty("none"))))
+            .bindNow();
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void upstreamProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "resources");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> "http://localhost:" + upstream.port());
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/**");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.disposeNow();
+    }
+
+    @Test
+    void routesOverHttp2WithPoolMetrics() {
+        webTestClient.mutateWith(mockOAuth2Login())
+                .get().uri("/api/stream")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).value(streamId -> assertThat(streamId).isNotEqualTo("none"));
+
+        assertThat(meterRegistry.find("reactor.netty.connection.provider.max.connections").tag("name", "proxy")
+                .gauge()).isNotNull()
+                .satisfies(gauge -> assertThat(gauge.value()).isEqualTo(4));
+    }
+}
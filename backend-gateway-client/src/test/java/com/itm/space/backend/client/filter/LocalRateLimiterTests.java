@@ -0,0 +1,68 @@
+package com.itm.space.backend.client.filter;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.Map;
+
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.mockOAuth2Login;
+
+@SpringBootTest(properties = "spring.cloud.gateway.default-filters[0]=RemoveRequestHeader=Cookie")
+@AutoConfigureWebTestClient
+class LocalRateLimiterTests {
+    private static final DisposableServer upstream = HttpServer.create()
+            .port(0)
+            .route(routes -> routes.get("/api/roles", (request, response) -> response.sendString(Mono.just("[]"))))
+            .bindNow();
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @DynamicPropertySource
+    static void upstreamProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "resources");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> "http://localhost:" + upstream.port());
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/**");
+        registry.add("spring.cloud.gateway.routes[0].filters[0].name", () -> "RequestRateLimiter");
+        registry.add("spring.cloud.gateway.routes[0].filters[0].args.local-rate-limiter.replenish-rate", () -> "1");
+        registry.add("spring.cloud.gateway.routes[0].filters[0].args.local-rate-limiter.burst-capacity", () -> "3");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.disposeNow();
+    }
+
+    @Test
+    void burstIsAllowedThenRequestsAreLimitedPerUser() {
+        for (int remaining = 2; remaining >= 0; remaining--) {
+            get(Map.of("sub", "erin")).expectStatus().isOk()
+                    .expectHeader().valueEquals(LocalRateLimiter.LIMIT_HEADER, "3")
+                    .expectHeader().valueEquals(LocalRateLimiter.REMAINING_HEADER, String.valueOf(remaining));
+        }
+        get(Map.of("sub", "erin")).expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().valueEquals(LocalRateLimiter.REMAINING_HEADER, "0")
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1")
+                .expectHeader().valueEquals(LocalRateLimiter.RESET_HEADER, "3");
+
+        get(Map.of("sub", "frank")).expectStatus().isOk()
+                .expectHeader().valueEquals(LocalRateLimiter.REMAINING_HEADER, "2");
+    }
+
+    private WebTestClient.ResponseSpec get(Map<String, Object> attributes) {
+        return webTestClient.mutateWith(mockOAuth2Login().attributes(claims -> claims.putAll(attributes)))
+                .get().uri("/api/roles")
+                .exchange();
+    }
+}
@@ -0,0 +1,138 @@
+package com.itm.space.backend.client.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.csrf;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.mockOAuth2Login;
+
+@SpringBootTest(properties = "spring.cloud.gateway.default-filters[0]=RemoveRequestHeader=Cookie")
+@AutoConfigureWebTestClient
+class ResponseCacheGatewayFilterFactoryTests {
+    private static final AtomicInteger upstreamRequests = new AtomicInteger();
+    private static final AtomicInteger version = new AtomicInteger(1);
+    private static final DisposableServer upstream = HttpServer.create()
+            .port(0)
+            .route(routes -> routes
+                    .get("/api/users/{id}", (request, response) -> {
+                        upstreamRequests.incrementAndGet();
+                        String etag = "\"" + request.param("id") + "-" + version.get() + "\"";
+                        response.header(HttpHeaderNames.ETAG, etag)
+                                .header(HttpHeaderNames.CACHE_CONTROL, "max-age=0");
+                        if (etag.equals(request.requestHeaders().get(HttpHeaderNames.IF_NONE_MATCH))) {
+                            return response.status(304).send();
+                        }
+                        return response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                .sendString(Mono.just("{\"id\":\"" + request.param("id") + "\"}"));
+                    })
+                    .get("/api/roles", (request, response) -> {
+                        upstreamRequests.incrementAndGet();
+                        return response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                .sendString(Mono.just("[\"MODERATOR\"]"));
+                    })
+                    .get("/api/private", (request, response) -> {
+                        upstreamRequests.incrementAndGet();
+                        return response.header(HttpHeaderNames.CACHE_CONTROL, "no-store")
+                                .sendString(Mono.just("secret"));
+                    })
+                    .post("/api/roles", (request, response) -> {
+                        upstreamRequests.incrementAndGet();
+                        return response.status(204).send();
+                    }))
+            .bindNow();
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void upstreamProperties(DynamicPropertyRegistry registry) {
+        // a list is bound from a single property source, so the whole route has to be defined here
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "resources");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> "http://localhost:" + upstream.port());
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/**");
+        registry.add("spring.cloud.gateway.routes[0].filters[0].name", () -> "ResponseCache");
+        registry.add("spring.cloud.gateway.routes[0].filters[0].args.time-to-live", () -> "1h");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.disposeNow();
+    }
+
+    @Test
+    void repeatedReadIsServedFromCachePerUser() {
+        int before = upstreamRequests.get();
+        for (int i = 0; i < 3; i++) {
+            get("alice", "/api/roles").expectStatus().isOk().expectBody(String.class).isEqualTo("[\"MODERATOR\"]");
+        }
+        assertThat(upstreamRequests.get() - before).isEqualTo(1);
+
+        get("bob", "/api/roles").expectStatus().isOk().expectBody(String.class).isEqualTo("[\"MODERATOR\"]");
+        assertThat(upstreamRequests.get() - before).isEqualTo(2);
+
+        webTestClient.mutateWith(mockOAuth2Login().attributes(attributes -> attributes.put("sub", "alice")))
+                .mutateWith(csrf())
+                .post().uri("/api/roles")
+                .exchange()
+                .expectStatus().isNoContent();
+        get("alice", "/api/roles").expectStatus().isOk();
+        assertThat(upstreamRequests.get() - before).isEqualTo(4);
+        assertThat(meterRegistry.get("gateway.cache.requests").tag("route", "resources").tag("result", "hit")
+                .counter().count()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void staleEntryIsRevalidatedWithETag() {
+        // the entry is stored once the body has been streamed
+        get("carol", "/api/users/42").expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"42-1\"")
+                .expectBody(String.class).isEqualTo("{\"id\":\"42\"}");
+        int before = upstreamRequests.get();
+
+        get("carol", "/api/users/42").expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("{\"id\":\"42\"}");
+        webTestClient.mutateWith(mockOAuth2Login().attributes(attributes -> attributes.put("sub", "carol")))
+                .get().uri("/api/users/42")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"42-1\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        assertThat(upstreamRequests.get() - before).isEqualTo(2);
+
+        version.incrementAndGet();
+        get("carol", "/api/users/42").expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"42-2\"");
+        assertThat(meterRegistry.get("gateway.cache.requests").tag("route", "resources").tag("result", "revalidated")
+                .counter().count()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void noStoreResponsesAreNotCached() {
+        int before = upstreamRequests.get();
+        get("dave", "/api/private").expectStatus().isOk();
+        get("dave", "/api/private").expectStatus().isOk();
+        assertThat(upstreamRequests.get() - before).isEqualTo(2);
+    }
+
+    private WebTestClient.ResponseSpec get(String user, String path) {
+        return webTestClient.mutateWith(mockOAuth2Login().attributes(attributes -> attributes.put("sub", user)))
+                .get().uri(path)
+                .exchange();
+    }
+}
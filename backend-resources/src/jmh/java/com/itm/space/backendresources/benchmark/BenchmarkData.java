@@ -0,0 +1,56 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserResponse;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static UserRepresentation userRepresentation() {
+        UserRepresentation userRepresentation = new UserRepresentation();
+        userRepresentation.setId(UUID.randomUUID().toString());
+        userRepresentation.setUsername("john");
+        userRepresentation.setFirstName("John");
+        userRepresentation.setLastName("Doe");
+        userRepresentation.setEmail("johndoe@gmail.com");
+        return userRepresentation;
+    }
+
+    static List<RoleRepresentation> roles(int size) {
+        return IntStream.range(0, size).mapToObj(i -> {
+            RoleRepresentation role = new RoleRepresentation();
+            role.setId(UUID.randomUUID().toString());
+            role.setName("role-" + i);
+            return role;
+        }).toList();
+    }
+
+    static List<GroupRepresentation> groups(int size) {
+        return IntStream.range(0, size).mapToObj(i -> {
+            GroupRepresentation group = new GroupRepresentation();
+            group.setId(UUID.randomUUID().toString());
+            group.setName("group-" + i);
+            group.setPath("/group-" + i);
+            return group;
+        }).toList();
+    }
+
+    static UserResponse userResponse(int size) {
+        return new UserResponse("John", "Doe", "johndoe@gmail.com",
+                IntStream.range(0, size).mapToObj(i -> "role-" + i).toList(),
+                IntStream.range(0, size).mapToObj(i -> "group-" + i).toList());
+    }
+
+    static UserRequest userRequest() {
+        return new UserRequest("john", "johndoe@gmail.com", "password", "John", "Doe");
+    }
+}
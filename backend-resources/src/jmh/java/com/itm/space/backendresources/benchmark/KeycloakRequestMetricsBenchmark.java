@@ -0,0 +1,53 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.itm.space.backendresources.worker.KeycloakRequestMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Overhead {@link KeycloakRequestMetrics} adds to a Keycloak call, with the Prometheus registry
+ * used in production (percentile histogram included). The call itself is a trivial supplier.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(2)
+public class KeycloakRequestMetricsBenchmark {
+
+    private final String id = UUID.randomUUID().toString();
+    private final Supplier<String> call = () -> id;
+    private KeycloakRequestMetrics metrics;
+
+    @Setup
+    public void setUp() {
+        metrics = new KeycloakRequestMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+    }
+
+    @Benchmark
+    public String baseline() {
+        return call.get();
+    }
+
+    @Benchmark
+    public String timed() {
+        return metrics.record("getUserById", call);
+    }
+}
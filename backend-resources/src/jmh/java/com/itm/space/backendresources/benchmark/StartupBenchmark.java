@@ -0,0 +1,71 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.itm.space.backendresources.BackendResourcesApplication;
+import com.itm.space.backendresources.KeycloakStandIn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application startup time with signing keys fetched from Keycloak during startup ({@code fetchOnStartup=true})
+ * against the default lazy mode, with a stand-in Keycloak whose realm endpoints answer after 1s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"false", "true"})
+    private boolean fetchOnStartup;
+
+    private KeycloakStandIn keycloakStandIn;
+    private Path cacheDirectory;
+
+    @Setup(Level.Trial)
+    public void startKeycloak() throws IOException {
+        keycloakStandIn = KeycloakStandIn.start();
+        keycloakStandIn.setRealmLatency(Duration.ofSeconds(1));
+        cacheDirectory = Files.createTempDirectory("jwks");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopKeycloak() {
+        keycloakStandIn.close();
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext startAndStop() {
+        // command-line arguments, so they take precedence over application.yaml
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendResourcesApplication.class)
+                .run("--server.port=0",
+                        "--management.server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--spring.security.oauth2.resourceserver.jwt.issuer-uri=" + keycloakStandIn.getIssuerUri(),
+                        "--keycloak.auth-server-url=" + keycloakStandIn.getServerUrl(),
+                        "--security.jwks.cache-file=" + cacheDirectory.resolve("jwks-" + System.nanoTime() + ".json"),
+                        "--security.jwks.fetch-on-startup=" + fetchOnStartup);
+        context.close();
+        return context;
+    }
+}
@@ -0,0 +1,94 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the body formats the web layer negotiates: {@link UserResponse} serialization and
+ * {@link UserRequest} deserialization in JSON, CBOR and Smile, each through one reused reader and writer.
+ * Payload sizes are printed once per trial, since JMH only reports times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"5", "500"})
+    private int size;
+
+    private ObjectWriter userResponseWriter;
+    private ObjectReader userResponseReader;
+    private ObjectReader userRequestReader;
+    private UserResponse userResponse;
+    private byte[] userResponseBytes;
+    private byte[] userRequestBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .factory(factory(format))
+                .modulesToInstall(new ParameterNamesModule(JsonCreator.Mode.DEFAULT))
+                .build();
+        userResponseWriter = objectMapper.writerFor(UserResponse.class);
+        userResponseReader = objectMapper.readerFor(UserResponse.class);
+        userRequestReader = objectMapper.readerFor(UserRequest.class);
+        userResponse = BenchmarkData.userResponse(size);
+        userResponseBytes = userResponseWriter.writeValueAsBytes(userResponse);
+        userRequestBytes = objectMapper.writeValueAsBytes(BenchmarkData.userRequest());
+        System.out.printf("%n%s, size %d: UserResponse %d bytes, UserRequest %d bytes%n",
+                format, size, userResponseBytes.length, userRequestBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeUserResponse() throws IOException {
+        return userResponseWriter.writeValueAsBytes(userResponse);
+    }
+
+    @Benchmark
+    public UserResponse deserializeUserResponse() throws IOException {
+        return userResponseReader.readValue(userResponseBytes);
+    }
+
+    @Benchmark
+    public UserRequest deserializeUserRequest() throws IOException {
+        return userRequestReader.readValue(userRequestBytes);
+    }
+
+    private static JsonFactory factory(String format) {
+        return switch (format) {
+            case "json" -> new JsonFactory();
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> throw new IllegalArgumentException(format);
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserResponse;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the web layer: serialization of {@link UserResponse} and
+ * deserialization plus Bean Validation of {@link UserRequest}, using an
+ * {@link ObjectMapper} configured the way Spring Boot configures it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserJsonBenchmark {
+
+    @Param({"5", "500"})
+    private int size;
+
+    private ObjectWriter userResponseWriter;
+    private ObjectReader userRequestReader;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private UserResponse userResponse;
+    private byte[] userRequestJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .modulesToInstall(new ParameterNamesModule(JsonCreator.Mode.DEFAULT))
+                .build();
+        userResponseWriter = objectMapper.writerFor(UserResponse.class);
+        userRequestReader = objectMapper.readerFor(UserRequest.class);
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        userResponse = BenchmarkData.userResponse(size);
+        userRequestJson = objectMapper.writeValueAsBytes(BenchmarkData.userRequest());
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public byte[] serializeUserResponse() throws IOException {
+        return userResponseWriter.writeValueAsBytes(userResponse);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserRequest>> deserializeAndValidateUserRequest() throws IOException {
+        UserRequest userRequest = userRequestReader.readValue(userRequestJson);
+        return validator.validate(userRequest);
+    }
+}
@@ -0,0 +1,54 @@
+package com.itm.space.backendresources.benchmark;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.mapper.UserMapperImpl;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link UserMapper#userRepresentationToUserResponse} for users with {@code size} roles and groups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    @Param({"5", "500"})
+    private int size;
+
+    private final UserMapper userMapper = new UserMapperImpl();
+    private UserRepresentation userRepresentation;
+    private List<RoleRepresentation> roles;
+    private List<GroupRepresentation> groups;
+
+    @Setup
+    public void setUp() {
+        userRepresentation = BenchmarkData.userRepresentation();
+        roles = BenchmarkData.roles(size);
+        groups = BenchmarkData.groups(size);
+    }
+
+    @Benchmark
+    public UserResponse userRepresentationToUserResponse() {
+        return userMapper.userRepresentationToUserResponse(userRepresentation, roles, groups);
+    }
+}
@@ -0,0 +1,81 @@
+package com.itm.space.backendresources.configuration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Cost of {@link SecurityConfiguration#convertJwtToken(Jwt, RealmRoleAuthorities)} for a Keycloak access token
+ * carrying {@code roleCount} realm roles, against building fresh authorities per request as it used to.
+ * Run with {@code -prof gc} (the default {@code jmh.args}) to compare allocations per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtConversionBenchmark {
+
+    @Param({"3", "30"})
+    private int roleCount;
+
+    private Jwt jwt;
+    private RealmRoleAuthorities realmRoleAuthorities;
+
+    @Setup
+    public void setUp() {
+        List<String> roles = IntStream.range(0, roleCount).mapToObj(i -> "role-" + i).toList();
+        Instant issuedAt = Instant.now();
+        jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .header("kid", "benchmark")
+                .subject(UUID.randomUUID().toString())
+                .issuer("http://backend-keycloak-auth:8080/auth/realms/ITM")
+                .issuedAt(issuedAt)
+                .expiresAt(issuedAt.plusSeconds(300))
+                .claim("preferred_username", "john")
+                .claim("realm_access", Map.of("roles", roles))
+                .claim("scope", "openid email profile")
+                .build();
+        realmRoleAuthorities = new RealmRoleAuthorities(1000);
+    }
+
+    @Benchmark
+    public JwtAuthenticationToken convertJwtToken() {
+        return SecurityConfiguration.convertJwtToken(jwt, realmRoleAuthorities);
+    }
+
+    @Benchmark
+    public JwtAuthenticationToken convertJwtTokenWithPerRequestAuthorities() {
+        Collection<GrantedAuthority> authorities = new ArrayList<>();
+        JwtAuthenticationToken authenticationToken = new JwtAuthenticationToken(jwt, authorities);
+        Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+        List<String> roles = (List<String>) realmAccess.get("roles");
+        for (String role : roles) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
+        }
+        return new JwtAuthenticationToken(jwt, authorities, authenticationToken.getName());
+    }
+}
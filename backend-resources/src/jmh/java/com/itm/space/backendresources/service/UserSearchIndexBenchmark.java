@@ -0,0 +1,64 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.api.response.UserListItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link UserSearchIndex} queries over a realm of {@code userCount} users: a selective prefix, a selective
+ * substring, and a one-character prefix that matches almost everyone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSearchIndexBenchmark {
+    private static final String[] FIRST_NAMES = {"John", "Maria", "Ivan", "Olga", "Peter", "Anna", "Sergey", "Elena"};
+    private static final String[] LAST_NAMES = {"Doe", "Petrova", "Ivanov", "Smirnova", "Kuznetsov", "Popova"};
+
+    @Param({"10000", "100000"})
+    private int userCount;
+
+    private UserSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new UserSearchIndex();
+        for (int i = 0; i < userCount; i++) {
+            String username = String.format("user%06d", i);
+            index.put(new UserListItem(UUID.randomUUID().toString(), username,
+                    FIRST_NAMES[i % FIRST_NAMES.length], LAST_NAMES[i % LAST_NAMES.length],
+                    username + "@example.com", null, null));
+        }
+    }
+
+    @Benchmark
+    public List<UserListItem> selectivePrefix() {
+        return index.search("user00123", true, 20);
+    }
+
+    @Benchmark
+    public List<UserListItem> selectiveSubstring() {
+        return index.search("04567@exam", false, 20);
+    }
+
+    @Benchmark
+    public List<UserListItem> broadPrefix() {
+        return index.search("u", true, 20);
+    }
+}
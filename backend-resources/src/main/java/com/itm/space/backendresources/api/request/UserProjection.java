@@ -0,0 +1,90 @@
+package com.itm.space.backendresources.api.request;
+
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The fields of a {@code UserResponse} a caller asked for with {@code fields=}; fields that are left out are not
+ * fetched from Keycloak when no requested field needs the same call.
+ */
+public record UserProjection(Set<Field> fields) {
+    public static final UserProjection ALL = new UserProjection(EnumSet.allOf(Field.class));
+
+    public UserProjection {
+        fields = Collections.unmodifiableSet(EnumSet.copyOf(fields));
+    }
+
+    /**
+     * The projection named by a comma-separated list of field names; {@code null} means every field.
+     */
+    public static UserProjection parse(String fields) {
+        if (fields == null) {
+            return ALL;
+        }
+        Set<Field> parsed = EnumSet.noneOf(Field.class);
+        for (String name : fields.split(",")) {
+            parsed.add(Field.of(name.strip()));
+        }
+        return parsed.size() == Field.values().length ? ALL : new UserProjection(parsed);
+    }
+
+    public boolean includes(Field field) {
+        return fields.contains(field);
+    }
+
+    public boolean isAll() {
+        return fields.size() == Field.values().length;
+    }
+
+    public boolean needsUser() {
+        return includes(Field.FIRST_NAME) || includes(Field.LAST_NAME) || includes(Field.EMAIL);
+    }
+
+    public boolean needsRoles() {
+        return includes(Field.ROLES);
+    }
+
+    public boolean needsGroups() {
+        return includes(Field.GROUPS);
+    }
+
+    /**
+     * {@code all}, or the field names in a fixed order; used in ETags and as a metric tag.
+     */
+    public String name() {
+        return isAll() ? "all" : fields.stream().map(Field::getName).collect(Collectors.joining(","));
+    }
+
+    public enum Field {
+        FIRST_NAME("firstName"),
+        LAST_NAME("lastName"),
+        EMAIL("email"),
+        ROLES("roles"),
+        GROUPS("groups");
+
+        private final String name;
+
+        Field(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        static Field of(String name) {
+            return Arrays.stream(values())
+                    .filter(field -> field.name.equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new BackendResourcesException("fields may only contain "
+                            + Arrays.stream(values()).map(Field::getName).collect(Collectors.joining(", ")),
+                            HttpStatus.BAD_REQUEST));
+        }
+    }
+}
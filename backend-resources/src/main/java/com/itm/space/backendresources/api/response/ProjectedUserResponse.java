@@ -0,0 +1,17 @@
+package com.itm.space.backendresources.api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * A {@link UserResponse} narrowed by {@code fields=}: the fields left out are absent rather than {@code null}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProjectedUserResponse extends UserResponse {
+
+    public ProjectedUserResponse(String firstName, String lastName, String email, List<String> roles,
+                                 List<String> groups) {
+        super(firstName, lastName, email, roles, groups);
+    }
+}
@@ -0,0 +1,16 @@
+package com.itm.space.backendresources.api.response;
+
+import lombok.Data;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+public class UserBatchResponse {
+    private final Map<UUID, UserResponse> users;
+    /**
+     * Ids in {@link #users} served from the last known result while Keycloak was unavailable, with its age in seconds.
+     */
+    private final Map<UUID, Long> stale;
+    private final Map<UUID, UserLookupError> errors;
+}
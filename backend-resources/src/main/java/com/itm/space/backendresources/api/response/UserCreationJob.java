@@ -0,0 +1,38 @@
+package com.itm.space.backendresources.api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserCreationJob {
+    private final String id;
+    private final State state;
+    private final Instant submittedAt;
+    private final Instant completedAt;
+    private final String userId;
+    private final Integer status;
+    private final String error;
+
+    public static UserCreationJob queued(String id, Instant submittedAt) {
+        return new UserCreationJob(id, State.QUEUED, submittedAt, null, null, null, null);
+    }
+
+    public UserCreationJob running() {
+        return new UserCreationJob(id, State.RUNNING, submittedAt, null, null, null, null);
+    }
+
+    public UserCreationJob succeeded(String userId, Instant completedAt) {
+        return new UserCreationJob(id, State.SUCCEEDED, submittedAt, completedAt, userId, null, null);
+    }
+
+    public UserCreationJob failed(int status, String error, Instant completedAt) {
+        return new UserCreationJob(id, State.FAILED, submittedAt, completedAt, null, status, error);
+    }
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+}
@@ -0,0 +1,21 @@
+package com.itm.space.backendresources.api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResult {
+    private final long index;
+    private final String id;
+    private final Integer status;
+    private final String error;
+
+    public static UserImportResult created(long index, String id) {
+        return new UserImportResult(index, id, null, null);
+    }
+
+    public static UserImportResult failed(long index, int status, String error) {
+        return new UserImportResult(index, null, status, error);
+    }
+}
@@ -0,0 +1,21 @@
+package com.itm.space.backendresources.api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One user of {@code GET /api/users}; {@code roles} and {@code groups} are only present when enrichment was requested.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserListItem {
+    private final String id;
+    private final String username;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final List<String> roles;
+    private final List<String> groups;
+}
@@ -0,0 +1,14 @@
+package com.itm.space.backendresources.api.response;
+
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import lombok.Data;
+
+@Data
+public class UserLookupError {
+    private final int status;
+    private final String message;
+
+    public static UserLookupError of(BackendResourcesException ex) {
+        return new UserLookupError(ex.getHttpStatus().value(), ex.getMessage());
+    }
+}
@@ -4,6 +4,10 @@ import lombok.Data;
 
 import java.util.List;
 
+/**
+ * A user of {@code GET /api/users/{id}}; every field is written, {@code null} included. Responses narrowed by
+ * {@code fields=} are {@link ProjectedUserResponse}s.
+ */
 @Data
 public class UserResponse {
     private final String firstName;
@@ -0,0 +1,10 @@
+package com.itm.space.backendresources.api.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class UserSearchResponse {
+    private final List<UserListItem> users;
+}
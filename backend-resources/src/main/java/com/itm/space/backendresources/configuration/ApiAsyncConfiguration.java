@@ -0,0 +1,51 @@
+package com.itm.space.backendresources.configuration;
+
+import com.itm.space.backendresources.util.ContextPropagatingTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Async servlet mode: Keycloak-bound endpoints hand their work to {@code apiExecutor} and release the Tomcat
+ * thread. The executor queue is the load-shedding bound; submissions beyond it are answered with 503. Like
+ * {@code keycloakExecutor}, the pool has one size, since it would only grow past its core size once the queue is full.
+ */
+@Configuration
+@ConditionalOnProperty(name = "api.async.enabled", havingValue = "true")
+public class ApiAsyncConfiguration implements WebMvcConfigurer {
+    @Value("${api.async.executor.pool-size:64}")
+    private int poolSize;
+    @Value("${api.async.executor.keep-alive:60s}")
+    private Duration keepAlive;
+    @Value("${api.async.executor.queue-capacity:128}")
+    private int queueCapacity;
+    @Value("${api.async.batch-timeout:5m}")
+    private Duration batchTimeout;
+
+    @Bean
+    public ThreadPoolTaskExecutor apiExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setKeepAliveSeconds((int) keepAlive.toSeconds());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("api-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // used by streaming responses; DeferredResult endpoints set their own, shorter timeout
+        configurer.setTaskExecutor(apiExecutor());
+        configurer.setDefaultTimeout(batchTimeout.toMillis());
+    }
+}
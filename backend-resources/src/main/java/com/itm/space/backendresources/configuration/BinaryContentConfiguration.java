@@ -0,0 +1,32 @@
+package com.itm.space.backendresources.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * {@code application/cbor} and {@code application/x-jackson-smile} bodies for internal callers, next to JSON.
+ * <p>
+ * Each format gets one {@link ObjectMapper}, built from Spring Boot's {@link Jackson2ObjectMapperBuilder} so that it
+ * reads and writes the same fields as the JSON one, and shared by every request, so serializers are looked up once
+ * per type. These converters take the place of Spring MVC's defaults for the two formats, which come after JSON, so
+ * requests without a preference still get JSON.
+ */
+@Configuration
+public class BinaryContentConfiguration {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,57 @@
+package com.itm.space.backendresources.configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Caches behind {@link com.itm.space.backendresources.worker.IdentityCache}. Each cache has its own TTL and its own
+ * entry bound under {@code keycloak.cache.<kind>}.
+ */
+@Configuration
+public class CacheConfiguration {
+    public static final String USERS_CACHE = "keycloak-users";
+    public static final String USER_ROLES_CACHE = "keycloak-user-roles";
+    public static final String USER_GROUPS_CACHE = "keycloak-user-groups";
+    public static final String USER_ETAGS_CACHE = "user-etags";
+
+    @Value("${keycloak.cache.users.ttl:60s}")
+    private Duration usersTtl;
+    @Value("${keycloak.cache.users.max-size:10000}")
+    private long usersMaxSize;
+    @Value("${keycloak.cache.roles.ttl:30s}")
+    private Duration rolesTtl;
+    @Value("${keycloak.cache.roles.max-size:10000}")
+    private long rolesMaxSize;
+    @Value("${keycloak.cache.groups.ttl:30s}")
+    private Duration groupsTtl;
+    @Value("${keycloak.cache.groups.max-size:10000}")
+    private long groupsMaxSize;
+    @Value("${keycloak.cache.etags.ttl:30s}")
+    private Duration etagsTtl;
+    @Value("${keycloak.cache.etags.max-size:10000}")
+    private long etagsMaxSize;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(USERS_CACHE, buildCache(usersTtl, usersMaxSize));
+        cacheManager.registerCustomCache(USER_ROLES_CACHE, buildCache(rolesTtl, rolesMaxSize));
+        cacheManager.registerCustomCache(USER_GROUPS_CACHE, buildCache(groupsTtl, groupsMaxSize));
+        cacheManager.registerCustomCache(USER_ETAGS_CACHE, buildCache(etagsTtl, etagsMaxSize));
+        return cacheManager;
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> buildCache(Duration ttl, long maxSize) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.itm.space.backendresources.configuration;
+
+import com.itm.space.backendresources.service.IdempotencyStore;
+import com.itm.space.backendresources.service.InMemoryIdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Keeps {@code Idempotency-Key}s in memory unless another {@link IdempotencyStore} is defined.
+ */
+@Configuration
+public class IdempotencyConfiguration {
+    @Value("${api.idempotency.ttl:24h}")
+    private Duration ttl;
+    @Value("${api.idempotency.max-keys:10000}")
+    private long maxKeys;
+
+    @Bean
+    @ConditionalOnMissingBean(IdempotencyStore.class)
+    public IdempotencyStore idempotencyStore() {
+        return new InMemoryIdempotencyStore(ttl, maxKeys);
+    }
+}
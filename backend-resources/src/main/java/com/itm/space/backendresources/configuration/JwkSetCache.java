@@ -0,0 +1,233 @@
+package com.itm.space.backendresources.configuration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.RestOperations;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keycloak signing keys for the resource server, available without contacting Keycloak at startup.
+ * <p>
+ * Keys are loaded from {@code cacheFile} when present and refreshed in the background every {@code refreshInterval};
+ * a token signed with an unknown {@code kid} triggers an immediate refresh, at most once per
+ * {@code minRefreshInterval}. The JWKS endpoint is discovered from the issuer on the first refresh. Each successful
+ * refresh is written back to {@code cacheFile}; failed refreshes keep the last known keys.
+ * <p>
+ * Whoever can write {@code cacheFile} can make the service trust their keys, so on POSIX file systems the file and
+ * its directory are only used when they belong to the service's user and nobody else may write them. A missing
+ * directory is created accessible to that user alone.
+ */
+@Slf4j
+class JwkSetCache implements JWKSource<SecurityContext>, AutoCloseable {
+    private final String issuerUri;
+    private final Path cacheFile;
+    private final Duration refreshInterval;
+    private final Duration minRefreshInterval;
+    private final RestOperations restOperations;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jwks-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile JWKSet jwkSet = new JWKSet();
+    private volatile Instant fetchedAt;
+    private volatile String jwkSetUri;
+    private long lastRefreshAttemptNanos = System.nanoTime() - Duration.ofDays(1).toNanos();
+
+    JwkSetCache(String issuerUri,
+                Path cacheFile,
+                Duration refreshInterval,
+                Duration minRefreshInterval,
+                RestOperations restOperations,
+                MeterRegistry meterRegistry) {
+        this.issuerUri = issuerUri;
+        this.cacheFile = cacheFile;
+        this.refreshInterval = refreshInterval;
+        this.minRefreshInterval = minRefreshInterval;
+        this.restOperations = restOperations;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("security.jwks.age", this, JwkSetCache::ageSeconds)
+                .description("Seconds since the signing keys were fetched from Keycloak")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("security.jwks.keys", this, cache -> cache.jwkSet.getKeys().size())
+                .description("Signing keys currently known")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the persisted key set and schedules background refreshes. With {@code fetchNow} the first refresh
+     * runs on the calling thread, so startup waits for Keycloak and fails if no keys are known afterwards.
+     */
+    void start(boolean fetchNow) {
+        loadCacheFile();
+        long initialDelay = 0;
+        if (fetchNow) {
+            refresh("startup");
+            if (jwkSet.getKeys().isEmpty()) {
+                throw new IllegalStateException("No signing keys could be loaded from " + issuerUri);
+            }
+            initialDelay = refreshInterval.toMillis();
+        }
+        scheduler.scheduleWithFixedDelay(() -> refresh("scheduled"), initialDelay, refreshInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        List<JWK> keys = jwkSelector.select(jwkSet);
+        if (keys.isEmpty() && refreshAllowed()) {
+            refresh("unknown_kid");
+            keys = jwkSelector.select(jwkSet);
+        }
+        return keys;
+    }
+
+    private double ageSeconds() {
+        Instant fetched = fetchedAt;
+        return fetched == null ? Double.NaN : Duration.between(fetched, Instant.now()).toMillis() / 1000.0;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized boolean refreshAllowed() {
+        long now = System.nanoTime();
+        if (now - lastRefreshAttemptNanos < minRefreshInterval.toNanos()) {
+            return false;
+        }
+        lastRefreshAttemptNanos = now;
+        return true;
+    }
+
+    private synchronized void refresh(String trigger) {
+        try {
+            String json = restOperations.getForObject(jwkSetUri(), String.class);
+            jwkSet = JWKSet.parse(json);
+            fetchedAt = Instant.now();
+            persist(json);
+            refreshCounter(trigger, "success").increment();
+        } catch (RuntimeException | ParseException ex) {
+            refreshCounter(trigger, "failure").increment();
+            log.warn("Could not refresh signing keys from {}, keeping {} cached key(s): {}",
+                    issuerUri, jwkSet.getKeys().size(), ex.getMessage());
+        }
+    }
+
+    private String jwkSetUri() {
+        if (jwkSetUri == null) {
+            JsonNode configuration = restOperations.getForObject(
+                    issuerUri + "/.well-known/openid-configuration", JsonNode.class);
+            if (configuration == null || !configuration.hasNonNull("jwks_uri")) {
+                throw new IllegalStateException("No jwks_uri in the OpenID configuration of " + issuerUri);
+            }
+            jwkSetUri = configuration.get("jwks_uri").asText();
+        }
+        return jwkSetUri;
+    }
+
+    private void loadCacheFile() {
+        if (!Files.isReadable(cacheFile)) {
+            return;
+        }
+        try {
+            if (!isPrivate(cacheFile.toAbsolutePath().getParent()) || !isPrivate(cacheFile)) {
+                return;
+            }
+            jwkSet = JWKSet.parse(Files.readString(cacheFile, StandardCharsets.UTF_8));
+            fetchedAt = Files.getLastModifiedTime(cacheFile).toInstant();
+            log.info("Loaded {} signing key(s) from {}", jwkSet.getKeys().size(), cacheFile);
+        } catch (IOException | ParseException ex) {
+            log.warn("Ignoring unreadable signing key cache {}: {}", cacheFile, ex.getMessage());
+        }
+    }
+
+    private void persist(String json) {
+        try {
+            Path directory = cacheFile.toAbsolutePath().getParent();
+            if (Files.notExists(directory)) {
+                createPrivateDirectory(directory);
+            }
+            if (!isPrivate(directory) || (Files.exists(cacheFile) && !isPrivate(cacheFile))) {
+                return;
+            }
+            Path temp = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+            Files.writeString(temp, json, StandardCharsets.UTF_8);
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Could not persist signing keys to {}: {}", cacheFile, ex.getMessage());
+        }
+    }
+
+    private static void createPrivateDirectory(Path directory) throws IOException {
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(directory,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Whether only the service's user may have written {@code path}: it owns the file and neither its group nor
+     * others have write permission. Always true where the file system has no POSIX permissions.
+     */
+    private static boolean isPrivate(Path path) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        if (view == null) {
+            return true;
+        }
+        PosixFileAttributes attributes = view.readAttributes();
+        UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        Set<PosixFilePermission> permissions = attributes.permissions();
+        if (!attributes.owner().equals(user)
+                || permissions.contains(PosixFilePermission.GROUP_WRITE)
+                || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+            log.warn("Not using the signing key cache: {} must be owned by {} and writable by nobody else, "
+                    + "but is owned by {} with permissions {}", path, user.getName(), attributes.owner().getName(),
+                    PosixFilePermissions.toString(permissions));
+            return false;
+        }
+        return true;
+    }
+
+    private Counter refreshCounter(String trigger, String outcome) {
+        return Counter.builder("security.jwks.refresh")
+                .description("Refreshes of the signing keys from Keycloak")
+                .tag("trigger", trigger)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
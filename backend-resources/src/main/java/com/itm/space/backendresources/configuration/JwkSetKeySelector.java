@@ -0,0 +1,40 @@
+package com.itm.space.backendresources.configuration;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyConverter;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.List;
+
+/**
+ * Verification keys for a token from the {@link JwkSetCache}. Rather than one fixed algorithm, a token's algorithm is
+ * accepted when a cached key supports it: the key type fits the algorithm (RSA or EC, never HMAC) and the key's
+ * {@code alg}, if it declares one, is the token's. The accepted algorithms thus follow the key set as Keycloak
+ * rotates it, as they would with {@code JwtDecoderProviderConfigurationUtils}, which derives them only once.
+ */
+class JwkSetKeySelector implements JWSKeySelector<SecurityContext> {
+    private final JwkSetCache jwkSetCache;
+
+    JwkSetKeySelector(JwkSetCache jwkSetCache) {
+        this.jwkSetCache = jwkSetCache;
+    }
+
+    @Override
+    public List<Key> selectJWSKeys(JWSHeader header, SecurityContext context) throws KeySourceException {
+        JWSAlgorithm algorithm = header.getAlgorithm();
+        if (!JWSAlgorithm.Family.RSA.contains(algorithm) && !JWSAlgorithm.Family.EC.contains(algorithm)) {
+            return List.of();
+        }
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(header));
+        return KeyConverter.toJavaKeys(jwkSetCache.get(selector, context)).stream()
+                .filter(PublicKey.class::isInstance)
+                .toList();
+    }
+}
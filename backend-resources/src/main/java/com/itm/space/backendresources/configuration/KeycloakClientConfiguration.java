@@ -1,16 +1,54 @@
 package com.itm.space.backendresources.configuration;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.worker.KeycloakTokenManager;
+import io.micrometer.core.instrument.Gauge;
+import io.netty.channel.ChannelOption;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.keycloak.admin.client.JacksonProvider;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
+import org.keycloak.admin.client.token.TokenService;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.ws.rs.Priorities;
+import javax.ws.rs.core.Form;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
 
 import static org.keycloak.OAuth2Constants.CLIENT_CREDENTIALS;
-import static org.keycloak.OAuth2Constants.PASSWORD;
+import static org.keycloak.OAuth2Constants.CLIENT_ID;
+import static org.keycloak.OAuth2Constants.CLIENT_SECRET;
+import static org.keycloak.OAuth2Constants.GRANT_TYPE;
 
 @Configuration
 public class KeycloakClientConfiguration {
+    /**
+     * Satisfies the admin client's own bearer filter; {@link KeycloakTokenManager} overwrites the header with the
+     * real token.
+     */
+    private static final String MANAGED_TOKEN = "managed-by-keycloak-token-manager";
+
     @Value("${keycloak.credentials.secret}")
     private String secretKey;
     @Value("${keycloak.resource}")
@@ -20,14 +58,149 @@ public class KeycloakClientConfiguration {
     @Value("${keycloak.realm}")
     private String realm;
 
-    @Bean
-    public Keycloak keycloak() {
+    @Value("${keycloak.http.pool-size:64}")
+    private int poolSize;
+    @Value("${keycloak.http.max-per-route:64}")
+    private int maxPerRoute;
+    @Value("${keycloak.http.connect-timeout:2s}")
+    private Duration connectTimeout;
+    @Value("${keycloak.http.read-timeout:5s}")
+    private Duration readTimeout;
+    @Value("${keycloak.http.acquire-timeout:1s}")
+    private Duration acquireTimeout;
+    @Value("${keycloak.http.keep-alive:60s}")
+    private Duration keepAlive;
+    @Value("${keycloak.http.connection-ttl:5m}")
+    private Duration connectionTtl;
+    @Value("${keycloak.http.idle-timeout:30s}")
+    private Duration idleTimeout;
+    @Value("${keycloak.http.validate-after-inactivity:2s}")
+    private Duration validateAfterInactivity;
+
+    @Value("${keycloak.token.refresh-at:0.75}")
+    private double tokenRefreshAt;
+    @Value("${keycloak.token.jitter:0.1}")
+    private double tokenJitter;
+    @Value("${keycloak.token.min-validity:5s}")
+    private Duration tokenMinValidity;
+    @Value("${keycloak.token.retry-interval:5s}")
+    private Duration tokenRetryInterval;
+
+    /**
+     * Shared by the admin and token clients, which leave it open when they are closed; it is shut down with the
+     * context.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public PoolingHttpClientConnectionManager keycloakConnectionManager(MeterRegistry meterRegistry) {
+        // the TTL caps a connection's total age; how long an idle one may be reused is the keep-alive strategy's call
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(connectionTtl.toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(poolSize);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setValidateAfterInactivity((int) validateAfterInactivity.toMillis());
+        registerPoolGauge(meterRegistry, connectionManager, "leased", PoolStats::getLeased);
+        registerPoolGauge(meterRegistry, connectionManager, "available", PoolStats::getAvailable);
+        registerPoolGauge(meterRegistry, connectionManager, "pending", PoolStats::getPending);
+        registerPoolGauge(meterRegistry, connectionManager, "max", PoolStats::getMax);
+        return connectionManager;
+    }
+
+    /**
+     * One evictor for the shared pool, instead of one thread per client built on it.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public IdleConnectionEvictor keycloakConnectionEvictor(PoolingHttpClientConnectionManager keycloakConnectionManager) {
+        IdleConnectionEvictor evictor = new IdleConnectionEvictor(keycloakConnectionManager,
+                idleTimeout.toMillis(), TimeUnit.MILLISECONDS, idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        evictor.start();
+        return evictor;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ResteasyClient keycloakTokenClient(PoolingHttpClientConnectionManager keycloakConnectionManager) {
+        return resteasyClient(keycloakConnectionManager);
+    }
+
+    @Bean(destroyMethod = "close")
+    public KeycloakTokenManager keycloakTokenManager(ResteasyClient keycloakTokenClient, MeterRegistry meterRegistry) {
+        TokenService tokenService = keycloakTokenClient.target(authUrl).proxy(TokenService.class);
+        Form form = new Form()
+                .param(GRANT_TYPE, CLIENT_CREDENTIALS)
+                .param(CLIENT_ID, clientId)
+                .param(CLIENT_SECRET, secretKey);
+        KeycloakTokenManager tokenManager = new KeycloakTokenManager(
+                () -> tokenService.grantToken(realm, form.asMap()),
+                tokenRefreshAt,
+                tokenJitter,
+                tokenMinValidity,
+                tokenRetryInterval,
+                meterRegistry);
+        tokenManager.start();
+        return tokenManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public Keycloak keycloak(PoolingHttpClientConnectionManager keycloakConnectionManager,
+                             KeycloakTokenManager keycloakTokenManager) {
+        // the admin client's built-in token manager refreshes lazily under a lock on the request path
         return KeycloakBuilder.builder()
                 .serverUrl(authUrl)
                 .realm(realm)
-                .grantType(CLIENT_CREDENTIALS)
-                .clientId(clientId)
-                .clientSecret(secretKey)
+                .authorization(MANAGED_TOKEN)
+                .resteasyClient(resteasyClient(keycloakConnectionManager)
+                        .register(keycloakTokenManager, Priorities.USER + 1))
                 .build();
     }
+
+    @Bean
+    @ConditionalOnProperty(name = "keycloak.worker", havingValue = "webclient")
+    public WebClient keycloakWebClient(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("keycloak")
+                .maxConnections(poolSize)
+                .pendingAcquireTimeout(acquireTimeout)
+                .maxIdleTime(idleTimeout)
+                .maxLifeTime(connectionTtl)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout);
+        // serialize like the admin client, which leaves null fields out
+        ObjectMapper keycloakMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return webClientBuilder
+                .baseUrl(authUrl + "/admin/realms/" + realm)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(keycloakMapper)))
+                .build();
+    }
+
+    private ResteasyClient resteasyClient(PoolingHttpClientConnectionManager connectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setSocketTimeout((int) readTimeout.toMillis())
+                .setConnectionRequestTimeout((int) acquireTimeout.toMillis())
+                .build();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive.toMillis()) : keepAlive.toMillis();
+                })
+                .build();
+        return new ResteasyClientBuilder()
+                .httpEngine(new ApacheHttpClient43Engine(httpClient, true))
+                .register(new JacksonProvider(), 100)
+                .build();
+    }
+
+    private static void registerPoolGauge(MeterRegistry meterRegistry,
+                                          PoolingHttpClientConnectionManager connectionManager,
+                                          String state,
+                                          ToDoubleFunction<PoolStats> value) {
+        Gauge.builder("keycloak.http.connections", connectionManager, manager -> value.applyAsDouble(manager.getTotalStats()))
+                .tag("state", state)
+                .description("Connections of the Keycloak admin client pool")
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,37 @@
+package com.itm.space.backendresources.configuration;
+
+import com.itm.space.backendresources.util.ContextPropagatingTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+
+/**
+ * Keycloak calls run on a fixed number of threads; a pool only grows past its core size once the queue is full, so
+ * the pool size is also the core size and idle threads time out instead.
+ */
+@Configuration
+public class KeycloakExecutorConfiguration {
+    @Value("${keycloak.executor.pool-size:32}")
+    private int poolSize;
+    @Value("${keycloak.executor.keep-alive:60s}")
+    private Duration keepAlive;
+    @Value("${keycloak.executor.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Bean
+    public ThreadPoolTaskExecutor keycloakExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setKeepAliveSeconds((int) keepAlive.toSeconds());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("keycloak-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -0,0 +1,96 @@
+package com.itm.space.backendresources.configuration;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Circuit breakers (one per {@code IdentityWorker} operation) and the bulkhead shared by all Keycloak calls.
+ * Client errors (4xx) and local rejections (bulkhead, executor queue) do not count as breaker failures.
+ * Besides the resilience4j meters, state changes are counted as {@code keycloak.circuit.transitions}, tagged by
+ * operation and from/to state.
+ */
+@Slf4j
+@Configuration
+public class KeycloakResilienceConfiguration {
+    @Value("${keycloak.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+    @Value("${keycloak.circuit-breaker.slow-call-rate-threshold:80}")
+    private float slowCallRateThreshold;
+    @Value("${keycloak.circuit-breaker.slow-call-duration-threshold:2s}")
+    private Duration slowCallDurationThreshold;
+    @Value("${keycloak.circuit-breaker.sliding-window-size:20}")
+    private int slidingWindowSize;
+    @Value("${keycloak.circuit-breaker.minimum-number-of-calls:10}")
+    private int minimumNumberOfCalls;
+    @Value("${keycloak.circuit-breaker.wait-duration-in-open-state:10s}")
+    private Duration waitDurationInOpenState;
+    @Value("${keycloak.circuit-breaker.permitted-calls-in-half-open-state:3}")
+    private int permittedCallsInHalfOpenState;
+    @Value("${keycloak.bulkhead.max-concurrent-calls:32}")
+    private int maxConcurrentCalls;
+
+    @Bean
+    public CircuitBreakerRegistry keycloakCircuitBreakers(MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(slowCallDurationThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .recordException(KeycloakResilienceConfiguration::isFailure)
+                .build());
+        circuitBreakers.getEventPublisher().onEntryAdded(added -> added.getAddedEntry().getEventPublisher()
+                .onStateTransition(event -> {
+                    CircuitBreaker.StateTransition transition = event.getStateTransition();
+                    log.warn("Keycloak circuit breaker for {}: {}", event.getCircuitBreakerName(), transition);
+                    meterRegistry.counter("keycloak.circuit.transitions",
+                            "operation", event.getCircuitBreakerName(),
+                            "from", transition.getFromState().name(),
+                            "to", transition.getToState().name()).increment();
+                }));
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        return circuitBreakers;
+    }
+
+    @Bean
+    public Bulkhead keycloakBulkhead(MeterRegistry meterRegistry) {
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+        return bulkheads.bulkhead("keycloak");
+    }
+
+    private static boolean isFailure(Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            return isFailure(ex.getCause());
+        }
+        if (ex instanceof BulkheadFullException || ex instanceof RejectedExecutionException) {
+            return false;
+        }
+        if (ex instanceof WebApplicationException webApplicationException) {
+            return webApplicationException.getResponse().getStatus() >= 500;
+        }
+        return true;
+    }
+}
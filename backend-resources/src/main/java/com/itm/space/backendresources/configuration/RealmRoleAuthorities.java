@@ -0,0 +1,41 @@
+package com.itm.space.backendresources.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared {@code ROLE_*} authorities for Keycloak realm roles. Authority instances are interned per role and the
+ * immutable authority list is reused for every token carrying the same role set, so an authenticated request
+ * allocates no authorities of its own.
+ */
+class RealmRoleAuthorities {
+    private final Map<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+    private final Cache<List<String>, List<GrantedAuthority>> roleSets;
+
+    RealmRoleAuthorities(long maxRoleSets) {
+        this.roleSets = Caffeine.newBuilder()
+                .maximumSize(maxRoleSets)
+                .build();
+    }
+
+    List<GrantedAuthority> of(Collection<String> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return List.of();
+        }
+        List<String> key = roles instanceof List<String> list ? list : List.copyOf(roles);
+        return roleSets.get(key, this::toAuthorities);
+    }
+
+    private List<GrantedAuthority> toAuthorities(List<String> roles) {
+        return roles.stream()
+                .map(role -> authorities.computeIfAbsent(role, name -> new SimpleGrantedAuthority("ROLE_" + name)))
+                .toList();
+    }
+}
@@ -1,19 +1,30 @@
 package com.itm.space.backendresources.configuration;
 
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.web.client.RestOperations;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -21,27 +32,73 @@ import java.util.Map;
 @EnableWebSecurity
 @EnableMethodSecurity(securedEnabled = true)
 public class SecurityConfiguration {
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+    @Value("${security.jwt.cache.max-size:10000}")
+    private long tokenCacheSize;
+    @Value("${security.jwt.cache.max-ttl:5m}")
+    private Duration tokenCacheMaxTtl;
+    @Value("${security.jwt.cache.max-role-sets:1000}")
+    private long maxRoleSets;
+
+    @Value("${security.jwks.cache-file}")
+    private Path jwksCacheFile;
+    @Value("${security.jwks.refresh-interval:10m}")
+    private Duration jwksRefreshInterval;
+    @Value("${security.jwks.min-refresh-interval:10s}")
+    private Duration jwksMinRefreshInterval;
+    @Value("${security.jwks.fetch-on-startup:false}")
+    private boolean fetchJwksOnStartup;
+    @Value("${security.jwks.timeout:5s}")
+    private Duration jwksTimeout;
+
+    @Bean
+    public JwkSetCache jwkSetCache(RestTemplateBuilder restTemplateBuilder, MeterRegistry meterRegistry) {
+        RestOperations restOperations = restTemplateBuilder
+                .setConnectTimeout(jwksTimeout)
+                .setReadTimeout(jwksTimeout)
+                .build();
+        JwkSetCache jwkSetCache = new JwkSetCache(issuerUri, jwksCacheFile, jwksRefreshInterval,
+                jwksMinRefreshInterval, restOperations, meterRegistry);
+        jwkSetCache.start(fetchJwksOnStartup);
+        return jwkSetCache;
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(JwkSetCache jwkSetCache, MeterRegistry meterRegistry) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JwkSetKeySelector(jwkSetCache));
+        // claims are checked by the Spring Security validators below
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder issuerDecoder = new NimbusJwtDecoder(jwtProcessor);
+        issuerDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return new CachingJwtDecoder(issuerDecoder, tokenCacheSize, tokenCacheMaxTtl, meterRegistry);
+    }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, MeterRegistry meterRegistry) throws Exception {
+        Timer jwtConversionTimer = Timer.builder("security.jwt.conversion")
+                .description("Conversion of a decoded JWT into an authentication token")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        RealmRoleAuthorities realmRoleAuthorities = new RealmRoleAuthorities(maxRoleSets);
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(requests -> requests
+                        .requestMatchers(EndpointRequest.toAnyEndpoint()
+                                .excluding(HealthEndpoint.class, PrometheusScrapeEndpoint.class))
+                        .hasRole("MODERATOR")
                         .anyRequest().permitAll())
                 .oauth2ResourceServer()
                 .jwt()
-                .jwtAuthenticationConverter(SecurityConfiguration::convertJwtToken);
+                .jwtAuthenticationConverter(jwt -> jwtConversionTimer.record(() -> convertJwtToken(jwt, realmRoleAuthorities)));
         return http.build();
     }
 
-    private static JwtAuthenticationToken convertJwtToken(Jwt jwt) {
-        Collection<GrantedAuthority> authorities = new ArrayList<>();
-        JwtAuthenticationToken authenticationToken = new JwtAuthenticationToken(jwt, authorities);
+    static JwtAuthenticationToken convertJwtToken(Jwt jwt, RealmRoleAuthorities realmRoleAuthorities) {
         Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
         List<String> roles = (List<String>) realmAccess.get("roles");
-        for (String role : roles) {
-            authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
-        }
-        return new JwtAuthenticationToken(jwt, authorities, authenticationToken.getName());
+        return new JwtAuthenticationToken(jwt, realmRoleAuthorities.of(roles));
     }
 }
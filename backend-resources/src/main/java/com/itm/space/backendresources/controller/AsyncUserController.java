@@ -0,0 +1,148 @@
+package com.itm.space.backendresources.controller;
+
+import com.itm.space.backendresources.api.request.UserProjection;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserBatchResponse;
+import com.itm.space.backendresources.api.response.UserCreationJob;
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.service.IdempotencyService;
+import com.itm.space.backendresources.service.UserService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Async counterpart of {@link UserController}, active when {@code api.async.enabled=true}. Calls that reach
+ * Keycloak run on the bounded {@code apiExecutor}, so a slow Keycloak no longer pins Tomcat threads.
+ */
+@RestController
+@RequestMapping("/api/users")
+@ConditionalOnProperty(name = "api.async.enabled", havingValue = "true")
+public class AsyncUserController {
+    private final UserService userService;
+    private final UserEndpoints userEndpoints;
+    private final Executor apiExecutor;
+
+    @Value("${api.async.timeout:5s}")
+    private Duration timeout;
+
+    public AsyncUserController(UserService userService,
+                               UserEndpoints userEndpoints,
+                               @Qualifier("apiExecutor") Executor apiExecutor) {
+        this.userService = userService;
+        this.userEndpoints = userEndpoints;
+        this.apiExecutor = apiExecutor;
+    }
+
+    @PostMapping
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public DeferredResult<ResponseEntity<UserCreationJob>> create(@RequestBody @Valid UserRequest userRequest,
+                                                                  @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                                  Principal principal) {
+        if (userEndpoints.isCreateQueued()) {
+            // only queued here, no need to occupy the apiExecutor
+            DeferredResult<ResponseEntity<UserCreationJob>> result = new DeferredResult<>();
+            result.setResult(userEndpoints.create(userRequest, idempotencyKey, principal));
+            return result;
+        }
+        return async(() -> userEndpoints.create(userRequest, idempotencyKey, principal));
+    }
+
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public ResponseEntity<StreamingResponseBody> createBatch(InputStream body) {
+        StreamingResponseBody stream = out -> userEndpoints.createBatch(body, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(stream);
+    }
+
+    @GetMapping
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public ResponseEntity<StreamingResponseBody> listUsers(@RequestParam(required = false) String search,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(defaultValue = "100") int size,
+                                                           @RequestParam(defaultValue = "false") boolean enrich) {
+        StreamingResponseBody stream = out -> userEndpoints.listUsers(search, cursor, size, enrich, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(stream);
+    }
+
+    @GetMapping("/{id}")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public DeferredResult<ResponseEntity<UserResponse>> getUserById(@PathVariable UUID id,
+                                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                    @RequestParam(required = false) String fields) {
+        UserProjection projection = UserProjection.parse(fields);
+        ResponseEntity<UserResponse> notModified = userEndpoints.notModified(id, projection, ifNoneMatch, accept);
+        if (notModified != null) {
+            // answered from the cached ETag, no need to occupy the apiExecutor
+            DeferredResult<ResponseEntity<UserResponse>> result = new DeferredResult<>();
+            result.setResult(notModified);
+            return result;
+        }
+        return async(() -> userEndpoints.getUserById(id, projection, ifNoneMatch, accept));
+    }
+
+    @GetMapping(params = "ids")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public DeferredResult<UserBatchResponse> getUsersByIds(@RequestParam List<UUID> ids) {
+        return async(() -> userService.getUsersByIds(ids));
+    }
+
+    @GetMapping("/hello")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public String hello() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    private <T> DeferredResult<T> async(Supplier<T> call) {
+        DeferredResult<T> result = new DeferredResult<>(timeout.toMillis());
+        result.onTimeout(() -> result.setErrorResult(
+                new BackendResourcesException("Request did not complete in time", HttpStatus.GATEWAY_TIMEOUT)));
+        // a full executor queue surfaces as RejectedExecutionException, answered with 503 by RestExceptionHandler
+        CompletableFuture.supplyAsync(call, apiExecutor).whenComplete((value, ex) -> {
+            if (ex == null) {
+                result.setResult(value);
+            } else {
+                result.setErrorResult(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+package com.itm.space.backendresources.controller;
+
+import com.itm.space.backendresources.service.LookupResult;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Conditional responses for looked-up values: every response carries the value's {@code ETag} and the configured
+ * {@code Cache-Control}, and a matching {@code If-None-Match} gets 304 without a body. Values served from the last
+ * known result while Keycloak is unavailable are marked with {@code Age} and a {@code Warning: 110} header, so clients
+ * can tell them from fresh data.
+ * <p>
+ * The CBOR and Smile representations of a value get ETags of their own, derived from the JSON one, and responses
+ * carry {@code Vary: Accept}, so a cache never answers a request for one format with a validator of another.
+ */
+final class LookupResponses {
+    static final String STALE_WARNING = "110 - \"Response is Stale\"";
+    static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    private LookupResponses() {
+    }
+
+    static <T> ResponseEntity<T> toResponseEntity(LookupResult<T> result, String ifNoneMatch, String accept,
+                                                  String cacheControl) {
+        String etag = representationETag(result.etag(), accept);
+        boolean notModified = matches(ifNoneMatch, etag);
+        ResponseEntity.BodyBuilder response = notModified
+                ? ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                : ResponseEntity.ok();
+        response.eTag(etag)
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .varyBy(HttpHeaders.ACCEPT);
+        if (result.isStale()) {
+            response.header(HttpHeaders.AGE, String.valueOf(result.staleness().toSeconds()))
+                    .header(HttpHeaders.WARNING, STALE_WARNING);
+        }
+        return notModified ? response.build() : response.body(result.value());
+    }
+
+    /**
+     * 304 for a request whose {@code If-None-Match} matches {@code cachedETag}, or {@code null} to look the value up.
+     */
+    static <T> ResponseEntity<T> notModified(String ifNoneMatch, String cachedETag, String accept,
+                                             String cacheControl) {
+        String etag = representationETag(cachedETag, accept);
+        if (!matches(ifNoneMatch, etag)) {
+            return null;
+        }
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .build();
+    }
+
+    /**
+     * The ETag of the representation that content negotiation will pick for {@code accept}: the JSON ETag unless the
+     * client prefers CBOR or Smile. JSON is the first converter, so wildcards and unknown types mean JSON.
+     */
+    static String representationETag(String etag, String accept) {
+        if (etag == null || accept == null) {
+            return etag;
+        }
+        List<MediaType> acceptable;
+        try {
+            acceptable = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return etag;
+        }
+        return acceptable.stream()
+                .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                .map(LookupResponses::formatOf)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .filter(format -> !format.isEmpty())
+                .map(format -> etag.substring(0, etag.length() - 1) + "." + format + "\"")
+                .orElse(etag);
+    }
+
+    /**
+     * {@code ""} for JSON, the format's name for CBOR and Smile, {@code null} for types none of them can write.
+     */
+    private static String formatOf(MediaType mediaType) {
+        if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+            return "";
+        }
+        if (mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+            return "cbor";
+        }
+        if (mediaType.isCompatibleWith(SMILE)) {
+            return "smile";
+        }
+        return null;
+    }
+
+    /**
+     * Weak comparison, as RFC 9110 prescribes for {@code If-None-Match}.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
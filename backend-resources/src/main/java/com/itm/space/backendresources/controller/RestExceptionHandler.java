@@ -1,6 +1,11 @@
 package com.itm.space.backendresources.controller;
 
 import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.exception.ReplayedClientErrorException;
+import com.itm.space.backendresources.service.IdempotencyService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -8,24 +13,49 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class RestExceptionHandler {
+    private final MeterRegistry meterRegistry;
 
     @ExceptionHandler(BackendResourcesException.class)
     public ResponseEntity<String> handleException(BackendResourcesException backendResourcesException) {
-        return new ResponseEntity<>(backendResourcesException.getMessage(), backendResourcesException.getHttpStatus());
+        countError(backendResourcesException.getHttpStatus(), backendResourcesException);
+        HttpHeaders headers = new HttpHeaders();
+        Duration retryAfter = backendResourcesException.getRetryAfter();
+        if (retryAfter != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        }
+        if (backendResourcesException instanceof ReplayedClientErrorException) {
+            headers.set(IdempotencyService.REPLAYED_HEADER, "true");
+        }
+        return new ResponseEntity<>(backendResourcesException.getMessage(), headers, backendResourcesException.getHttpStatus());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleRejectedExecution(RejectedExecutionException ex) {
+        countError(HttpStatus.SERVICE_UNAVAILABLE, ex);
+        return new ResponseEntity<>("Too many concurrent requests", HttpStatus.SERVICE_UNAVAILABLE);
     }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public Map<String, String> handleInvalidArgument(MethodArgumentNotValidException ex) {
+        countError(HttpStatus.BAD_REQUEST, ex);
         Map<String, String> errorMap = new HashMap<>();
         ex.getBindingResult().getFieldErrors()
                 .forEach(error -> errorMap.put(error.getField(), error.getDefaultMessage()));
         return errorMap;
     }
 
+    private void countError(HttpStatus status, Exception ex) {
+        meterRegistry.counter("api.errors",
+                "status", String.valueOf(status == null ? HttpStatus.INTERNAL_SERVER_ERROR.value() : status.value()),
+                "exception", ex.getClass().getSimpleName()).increment();
+    }
 }
@@ -1,42 +1,96 @@
 package com.itm.space.backendresources.controller;
 
+import com.itm.space.backendresources.api.request.UserProjection;
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserBatchResponse;
+import com.itm.space.backendresources.api.response.UserCreationJob;
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.service.IdempotencyService;
 import com.itm.space.backendresources.service.UserService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/users")
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "api.async.enabled", havingValue = "false", matchIfMissing = true)
 public class UserController {
     private final UserService userService;
+    private final UserEndpoints userEndpoints;
 
     @PostMapping
     @Secured("ROLE_MODERATOR")
     @SecurityRequirement(name = "oauth2_auth_code")
-    public void create(@RequestBody @Valid UserRequest userRequest) {
-        userService.createUser(userRequest);
+    public ResponseEntity<UserCreationJob> create(@RequestBody @Valid UserRequest userRequest,
+                                                  @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                  Principal principal) {
+        return userEndpoints.create(userRequest, idempotencyKey, principal);
+    }
+
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public void createBatch(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        userEndpoints.createBatch(body, response.getOutputStream());
+    }
+
+    @GetMapping
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public void listUsers(@RequestParam(required = false) String search,
+                          @RequestParam(required = false) String cursor,
+                          @RequestParam(defaultValue = "100") int size,
+                          @RequestParam(defaultValue = "false") boolean enrich,
+                          HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        userEndpoints.listUsers(search, cursor, size, enrich, response.getOutputStream());
     }
 
     @GetMapping("/{id}")
     @Secured("ROLE_MODERATOR")
     @SecurityRequirement(name = "oauth2_auth_code")
-    public UserResponse getUserById(@PathVariable UUID id) {
-        return userService.getUserById(id);
+    public ResponseEntity<UserResponse> getUserById(@PathVariable UUID id,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                    @RequestParam(required = false) String fields) {
+        UserProjection projection = UserProjection.parse(fields);
+        ResponseEntity<UserResponse> notModified = userEndpoints.notModified(id, projection, ifNoneMatch, accept);
+        if (notModified != null) {
+            return notModified;
+        }
+        return userEndpoints.getUserById(id, projection, ifNoneMatch, accept);
+    }
+
+    @GetMapping(params = "ids")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public UserBatchResponse getUsersByIds(@RequestParam List<UUID> ids) {
+        return userService.getUsersByIds(ids);
     }
 
     @GetMapping("/hello")
@@ -0,0 +1,51 @@
+package com.itm.space.backendresources.controller;
+
+import com.itm.space.backendresources.api.response.UserCreationJob;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.service.UserCreationQueue;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Status of user creations queued by {@code POST /api/users} when {@code keycloak.create-queue.enabled} is set.
+ * Answered from memory, so it is served the same way whether {@code api.async.enabled} is set or not.
+ */
+@RestController
+@RequestMapping("/api/users/jobs")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "keycloak.create-queue.enabled", havingValue = "true")
+public class UserCreationJobController {
+    private final UserCreationQueue userCreationQueue;
+
+    @GetMapping("/{id}")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public UserCreationJob getJob(@PathVariable String id) {
+        UserCreationJob job = userCreationQueue.getJob(id);
+        if (job == null) {
+            throw new BackendResourcesException("Job not found", HttpStatus.NOT_FOUND);
+        }
+        return job;
+    }
+
+    /**
+     * 202 for a queued creation, pointing at the job's status.
+     */
+    static ResponseEntity<UserCreationJob> accepted(UserCreationJob job) {
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                        .path("/jobs/{id}")
+                        .buildAndExpand(job.getId())
+                        .toUri())
+                .body(job);
+    }
+}
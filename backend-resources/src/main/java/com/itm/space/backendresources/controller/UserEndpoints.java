@@ -0,0 +1,104 @@
+package com.itm.space.backendresources.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.api.request.UserProjection;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationJob;
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.service.IdempotencyService;
+import com.itm.space.backendresources.service.UserCreationQueue;
+import com.itm.space.backendresources.service.UserImportService;
+import com.itm.space.backendresources.service.UserListingService;
+import com.itm.space.backendresources.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * The user endpoints' behaviour, shared by {@link UserController} and {@link AsyncUserController}; the controllers
+ * only decide which thread it runs on.
+ */
+@Component
+@RequiredArgsConstructor
+class UserEndpoints {
+    private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserListingService userListingService;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<UserCreationQueue> userCreationQueue;
+    private final IdempotencyService idempotencyService;
+
+    @Value("${api.users.cache-control:private, no-cache}")
+    private String cacheControl;
+
+    /**
+     * Whether creations are only queued, so {@link #create} returns without waiting for Keycloak.
+     */
+    boolean isCreateQueued() {
+        return userCreationQueue.getIfAvailable() != null;
+    }
+
+    ResponseEntity<UserCreationJob> create(UserRequest userRequest, String idempotencyKey, Principal principal) {
+        if (idempotencyKey == null) {
+            return create(userRequest);
+        }
+        return idempotencyService.execute(principal.getName(), idempotencyKey, userRequest, UserCreationJob.class,
+                () -> create(userRequest));
+    }
+
+    private ResponseEntity<UserCreationJob> create(UserRequest userRequest) {
+        UserCreationQueue queue = userCreationQueue.getIfAvailable();
+        if (queue != null) {
+            return UserCreationJobController.accepted(queue.submit(userRequest));
+        }
+        userService.createUser(userRequest);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Imports the users in {@code body}, writing one NDJSON result line per user as it completes.
+     */
+    void createBatch(InputStream body, OutputStream out) throws IOException {
+        userImportService.importUsers(body, result -> {
+            synchronized (out) {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                    out.flush();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        });
+    }
+
+    void listUsers(String search, String cursor, int size, boolean enrich, OutputStream out) throws IOException {
+        UserListWriter.write(objectMapper, out,
+                sink -> userListingService.listUsers(search, cursor, size, enrich, sink));
+    }
+
+    /**
+     * 304 when {@code If-None-Match} matches the cached ETag, or {@code null} if the user has to be looked up.
+     * Only complete users have their ETag cached.
+     */
+    ResponseEntity<UserResponse> notModified(UUID id, UserProjection projection, String ifNoneMatch, String accept) {
+        if (!projection.isAll()) {
+            return null;
+        }
+        return LookupResponses.notModified(ifNoneMatch, userService.getCachedETag(id), accept, cacheControl);
+    }
+
+    ResponseEntity<UserResponse> getUserById(UUID id, UserProjection projection, String ifNoneMatch, String accept) {
+        return LookupResponses.toResponseEntity(userService.getUserById(id, projection), ifNoneMatch, accept,
+                cacheControl);
+    }
+}
@@ -0,0 +1,85 @@
+package com.itm.space.backendresources.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.api.response.UserListItem;
+import com.itm.space.backendresources.api.response.UserLookupError;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes a user page as {@code {"users":[...],"nextCursor":"..."}} item by item as the listing produces them.
+ * Nothing is written before the first user, so a listing that fails up front (bad cursor, Keycloak unavailable)
+ * still gets a proper error response from {@link RestExceptionHandler}. A listing that fails once users have been
+ * written can no longer change the status, so the document is closed with an {@code "error"} member in place of
+ * {@code "nextCursor"}, e.g. {@code {"users":[...],"error":{"status":504,"message":"..."}}}.
+ */
+final class UserListWriter implements Consumer<UserListItem> {
+    private final ObjectMapper objectMapper;
+    private final OutputStream out;
+    private JsonGenerator generator;
+
+    private UserListWriter(ObjectMapper objectMapper, OutputStream out) {
+        this.objectMapper = objectMapper;
+        this.out = out;
+    }
+
+    /**
+     * Runs {@code listing} with a sink writing to {@code out}; the listing returns the next cursor.
+     */
+    static void write(ObjectMapper objectMapper, OutputStream out,
+                      Function<Consumer<UserListItem>, String> listing) throws IOException {
+        UserListWriter writer = new UserListWriter(objectMapper, out);
+        String nextCursor;
+        try {
+            nextCursor = listing.apply(writer);
+        } catch (BackendResourcesException ex) {
+            if (writer.generator == null) {
+                throw ex;
+            }
+            writer.fail(ex);
+            return;
+        }
+        writer.finish(nextCursor);
+    }
+
+    @Override
+    public void accept(UserListItem user) {
+        try {
+            start().writeObject(user);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private JsonGenerator start() throws IOException {
+        if (generator == null) {
+            generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("users");
+        }
+        return generator;
+    }
+
+    private void finish(String nextCursor) throws IOException {
+        start().writeEndArray();
+        if (nextCursor != null) {
+            generator.writeStringField("nextCursor", nextCursor);
+        }
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    private void fail(BackendResourcesException ex) throws IOException {
+        generator.writeEndArray();
+        generator.writeObjectField("error", UserLookupError.of(ex));
+        generator.writeEndObject();
+        generator.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.itm.space.backendresources.controller;
+
+import com.itm.space.backendresources.api.response.UserSearchResponse;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.service.UserSearchService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+/**
+ * Search over the local user index. Answered from memory, so it is served the same way whether
+ * {@code api.async.enabled} is set or not; {@code Age} tells how far behind Keycloak the results may be.
+ */
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "keycloak.search-index.enabled", havingValue = "true")
+public class UserSearchController {
+    private final UserSearchService userSearchService;
+
+    @GetMapping("/search")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public ResponseEntity<UserSearchResponse> search(@RequestParam String q,
+                                                     @RequestParam(defaultValue = "prefix") String mode,
+                                                     @RequestParam(defaultValue = "20") int limit) {
+        boolean prefix = switch (mode) {
+            case "prefix" -> true;
+            case "substring" -> false;
+            default -> throw new BackendResourcesException("mode must be prefix or substring", HttpStatus.BAD_REQUEST);
+        };
+        UserSearchResponse response = new UserSearchResponse(userSearchService.search(q, prefix, limit));
+        Duration lag = userSearchService.getLag();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AGE, String.valueOf(lag.toSeconds()))
+                .body(response);
+    }
+}
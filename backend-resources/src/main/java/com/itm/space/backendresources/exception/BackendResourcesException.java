@@ -3,13 +3,32 @@ package com.itm.space.backendresources.exception;
 import lombok.Getter;
 import org.springframework.http.HttpStatus;
 
+import java.time.Duration;
+
 @Getter
 public class BackendResourcesException extends RuntimeException {
 
     private final HttpStatus httpStatus;
+    /**
+     * When the client may try again, sent as {@code Retry-After}; {@code null} if unknown.
+     */
+    private final Duration retryAfter;
 
     public BackendResourcesException(String message, HttpStatus httpStatus) {
+        this(message, httpStatus, null);
+    }
+
+    public BackendResourcesException(String message, HttpStatus httpStatus, Duration retryAfter) {
         super(message);
         this.httpStatus = httpStatus;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * For an error Keycloak answered with {@code status}; a status {@link HttpStatus} does not know becomes 502.
+     */
+    public static BackendResourcesException fromUpstream(String message, int status) {
+        HttpStatus httpStatus = HttpStatus.resolve(status);
+        return new BackendResourcesException(message, httpStatus != null ? httpStatus : HttpStatus.BAD_GATEWAY);
     }
 }
@@ -0,0 +1,13 @@
+package com.itm.space.backendresources.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * The client error the first request with an {@code Idempotency-Key} failed with, answered again for a retry of it.
+ */
+public class ReplayedClientErrorException extends BackendResourcesException {
+
+    public ReplayedClientErrorException(String message, HttpStatus httpStatus) {
+        super(message, httpStatus);
+    }
+}
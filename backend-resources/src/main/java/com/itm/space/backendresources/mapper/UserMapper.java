@@ -1,5 +1,8 @@
 package com.itm.space.backendresources.mapper;
 
+import com.itm.space.backendresources.api.request.UserProjection;
+import com.itm.space.backendresources.api.response.ProjectedUserResponse;
+import com.itm.space.backendresources.api.response.UserListItem;
 import com.itm.space.backendresources.api.response.UserResponse;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
@@ -21,13 +24,41 @@ public interface UserMapper {
                                                   List<RoleRepresentation> roleList,
                                                   List<GroupRepresentation> groupList);
 
+    /**
+     * {@code userResponse} with only the fields of {@code projection}; the others are left {@code null}, which
+     * {@link ProjectedUserResponse} keeps out of the JSON.
+     */
+    default UserResponse project(UserResponse userResponse, UserProjection projection) {
+        if (projection.isAll()) {
+            return userResponse;
+        }
+        return new ProjectedUserResponse(
+                projection.includes(UserProjection.Field.FIRST_NAME) ? userResponse.getFirstName() : null,
+                projection.includes(UserProjection.Field.LAST_NAME) ? userResponse.getLastName() : null,
+                projection.includes(UserProjection.Field.EMAIL) ? userResponse.getEmail() : null,
+                projection.includes(UserProjection.Field.ROLES) ? userResponse.getRoles() : null,
+                projection.includes(UserProjection.Field.GROUPS) ? userResponse.getGroups() : null);
+    }
+
+    @Mapping(target = "roles", source = "roleList", qualifiedByName = "mapRoleRepresentationToString")
+    @Mapping(target = "groups", source = "groupList", qualifiedByName = "mapGroupRepresentationToString")
+    UserListItem userRepresentationToUserListItem(UserRepresentation userRepresentation,
+                                                  List<RoleRepresentation> roleList,
+                                                  List<GroupRepresentation> groupList);
+
     @Named("mapRoleRepresentationToString")
     default List<String> mapRoleRepresentationToString(List<RoleRepresentation> roleList) {
+        if (roleList == null) {
+            return null;
+        }
         return roleList.stream().map(RoleRepresentation::getName).toList();
     }
 
     @Named("mapGroupRepresentationToString")
     default List<String> mapGroupRepresentationToString(List<GroupRepresentation> groupList) {
+        if (groupList == null) {
+            return null;
+        }
         return groupList.stream().map(GroupRepresentation::getName).toList();
     }
 
@@ -0,0 +1,221 @@
+package com.itm.space.backendresources.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.exception.ReplayedClientErrorException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request that carries an {@code Idempotency-Key} at most once per caller and key.
+ * <p>
+ * The first request with a key runs and its response, or the client error it failed with, is kept in the
+ * {@link IdempotencyStore}. A retry with the same key and body gets that response or error again, marked with
+ * {@code Idempotent-Replayed: true}, without running; a retry arriving while the first request is still running waits
+ * up to {@code api.idempotency.wait-timeout} for it and gets 409 after that. Reusing a key for a different body is
+ * answered with 422. Server errors are not kept, so a retry after one, or one that was waiting for it, runs again.
+ * <p>
+ * The store only holds values; retries wait for a first request running in this instance on a local future, and for
+ * one running elsewhere by polling the store.
+ */
+@Service
+public class IdempotencyService {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final long POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    /**
+     * The requests this instance is running, by key, completed with what was stored for them or {@code null} if the
+     * key was freed.
+     */
+    private final Map<String, CompletableFuture<IdempotentRequest>> running = new ConcurrentHashMap<>();
+
+    @Value("${api.idempotency.wait-timeout:5s}")
+    private Duration waitTimeout;
+    @Value("${api.idempotency.max-key-length:255}")
+    private int maxKeyLength;
+
+    public IdempotencyService(IdempotencyStore idempotencyStore,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs {@code call} for the first request of {@code caller} with {@code key}, and replays its response for
+     * retries with the same {@code body}; a replayed body is read back as {@code bodyType}.
+     */
+    public <T> ResponseEntity<T> execute(String caller, String key, Object body, Class<T> bodyType,
+                                         Supplier<ResponseEntity<T>> call) {
+        if (key.isBlank() || key.length() > maxKeyLength) {
+            throw new BackendResourcesException(IDEMPOTENCY_KEY_HEADER + " must be between 1 and " + maxKeyLength
+                    + " characters long", HttpStatus.BAD_REQUEST);
+        }
+        // keys are chosen by clients, so they only have to be unique per caller
+        String scopedKey = caller + '\n' + key;
+        String fingerprint = fingerprint(body);
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            IdempotentRequest first = idempotencyStore.putIfAbsent(scopedKey, IdempotentRequest.inProgress(fingerprint));
+            if (first == null) {
+                return run(scopedKey, fingerprint, call);
+            }
+            if (!first.fingerprint().equals(fingerprint)) {
+                count("mismatch");
+                throw new BackendResourcesException(
+                        IDEMPOTENCY_KEY_HEADER + " was already used for a different request",
+                        HttpStatus.UNPROCESSABLE_ENTITY);
+            }
+            IdempotentRequest completed = awaitCompletion(scopedKey, first, deadline);
+            if (completed != null) {
+                return replay(completed, bodyType);
+            }
+            // the first request failed in a way that is not kept, so this one takes the key and runs
+        }
+    }
+
+    private <T> ResponseEntity<T> run(String key, String fingerprint, Supplier<ResponseEntity<T>> call) {
+        CompletableFuture<IdempotentRequest> completion = new CompletableFuture<>();
+        running.put(key, completion);
+        IdempotentRequest completed = null;
+        try {
+            ResponseEntity<T> response = call.get();
+            if (isFinal(response.getStatusCode())) {
+                completed = IdempotentRequest.completed(fingerprint, response.getStatusCode().value(),
+                        response.getHeaders(), serialize(response.getBody()));
+            }
+            return response;
+        } catch (BackendResourcesException ex) {
+            if (isFinal(ex)) {
+                completed = IdempotentRequest.completed(fingerprint, ex.getHttpStatus().value(), Map.of(),
+                        ex.getMessage());
+            }
+            throw ex;
+        } finally {
+            // whatever the call ended with, an Error included, so that no retry waits for a request that is over
+            try {
+                if (completed != null) {
+                    idempotencyStore.complete(key, completed);
+                } else {
+                    idempotencyStore.remove(key);
+                }
+            } finally {
+                running.remove(key, completion);
+                completion.complete(completed);
+                count("executed");
+            }
+        }
+    }
+
+    /**
+     * {@code first} once it has completed, or {@code null} if its key was freed; 409 if that takes past
+     * {@code deadline}.
+     */
+    private IdempotentRequest awaitCompletion(String key, IdempotentRequest first, long deadline) {
+        IdempotentRequest current = first;
+        while (current != null && !current.isCompleted()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                count("in-progress");
+                throw new BackendResourcesException("A request with this " + IDEMPOTENCY_KEY_HEADER
+                        + " is still in progress", HttpStatus.CONFLICT, Duration.ofSeconds(1));
+            }
+            CompletableFuture<IdempotentRequest> completion = running.get(key);
+            try {
+                if (completion != null) {
+                    return completion.get(remaining, TimeUnit.NANOSECONDS);
+                }
+                // running in another instance, or not registered yet: only the store can tell
+                TimeUnit.NANOSECONDS.sleep(Math.min(remaining, POLL_INTERVAL_NANOS));
+            } catch (TimeoutException ex) {
+                continue;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new BackendResourcesException(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Completions are never failed", ex);
+            }
+            current = idempotencyStore.get(key);
+        }
+        return current;
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotentRequest first, Class<T> bodyType) {
+        count("replayed");
+        HttpStatusCode status = HttpStatusCode.valueOf(first.status());
+        if (status.isError()) {
+            throw new ReplayedClientErrorException(first.body(), HttpStatus.valueOf(first.status()));
+        }
+        return ResponseEntity.status(status)
+                .headers(headers -> {
+                    headers.putAll(first.headers());
+                    headers.set(REPLAYED_HEADER, "true");
+                })
+                .body(deserialize(first.body(), bodyType));
+    }
+
+    /**
+     * Whether a retry would end the same way: successes and client errors, except those that ask to try again.
+     */
+    private static boolean isFinal(BackendResourcesException ex) {
+        return ex.getHttpStatus() != null && isFinal(ex.getHttpStatus());
+    }
+
+    private static boolean isFinal(HttpStatusCode status) {
+        return status.value() < 500
+                && status.value() != HttpStatus.REQUEST_TIMEOUT.value()
+                && status.value() != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    private String fingerprint(Object body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(body));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Could not fingerprint the request", ex);
+        }
+    }
+
+    private String serialize(Object body) {
+        try {
+            return body == null ? null : objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not keep the response", ex);
+        }
+    }
+
+    private <T> T deserialize(String body, Class<T> bodyType) {
+        try {
+            return body == null ? null : objectMapper.readValue(body, bodyType);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not replay the response", ex);
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("api.idempotency.requests", "result", result).increment();
+    }
+}
@@ -0,0 +1,28 @@
+package com.itm.space.backendresources.service;
+
+/**
+ * Requests made with an {@code Idempotency-Key}, by key. Entries are plain values, so a store may keep them outside
+ * this process. A store may forget an entry after a while, which only means that a retry after that is run again.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Records {@code request} under {@code key} unless the key is taken, and returns the earlier request if it is.
+     */
+    IdempotentRequest putIfAbsent(String key, IdempotentRequest request);
+
+    /**
+     * The request under {@code key}, or {@code null} if there is none.
+     */
+    IdempotentRequest get(String key);
+
+    /**
+     * Replaces the request in progress under {@code key} with {@code request}, which holds its response.
+     */
+    void complete(String key, IdempotentRequest request);
+
+    /**
+     * Frees {@code key}, so that a retry runs again instead of replaying.
+     */
+    void remove(String key);
+}
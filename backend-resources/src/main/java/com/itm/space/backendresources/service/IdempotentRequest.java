@@ -0,0 +1,33 @@
+package com.itm.space.backendresources.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A request made with an {@code Idempotency-Key}, as an {@link IdempotencyStore} keeps it: a hash of its body, to
+ * tell a retry from a different request reusing the key, and once it has completed, its response. That is the
+ * status, the headers and the body as JSON, or for a client error, its message as the body.
+ */
+public record IdempotentRequest(String fingerprint,
+                                State state,
+                                int status,
+                                Map<String, List<String>> headers,
+                                String body) {
+
+    public static IdempotentRequest inProgress(String fingerprint) {
+        return new IdempotentRequest(fingerprint, State.IN_PROGRESS, 0, Map.of(), null);
+    }
+
+    public static IdempotentRequest completed(String fingerprint, int status, Map<String, List<String>> headers,
+                                              String body) {
+        return new IdempotentRequest(fingerprint, State.COMPLETED, status, Map.copyOf(headers), body);
+    }
+
+    public boolean isCompleted() {
+        return state == State.COMPLETED;
+    }
+
+    public enum State {
+        IN_PROGRESS, COMPLETED
+    }
+}
@@ -0,0 +1,41 @@
+package com.itm.space.backendresources.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Keeps up to {@code maxSize} keys for {@code ttl} after they were last written, in memory; so a retry is only
+ * recognised by the instance that served the first call.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    private final Cache<String, IdempotentRequest> requests;
+
+    public InMemoryIdempotencyStore(Duration ttl, long maxSize) {
+        this.requests = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    @Override
+    public IdempotentRequest putIfAbsent(String key, IdempotentRequest request) {
+        return requests.asMap().putIfAbsent(key, request);
+    }
+
+    @Override
+    public IdempotentRequest get(String key) {
+        return requests.getIfPresent(key);
+    }
+
+    @Override
+    public void complete(String key, IdempotentRequest request) {
+        requests.put(key, request);
+    }
+
+    @Override
+    public void remove(String key) {
+        requests.invalidate(key);
+    }
+}
@@ -0,0 +1,22 @@
+package com.itm.space.backendresources.service;
+
+import java.time.Duration;
+
+/**
+ * A looked-up value with its strong ETag and, when Keycloak could not be reached and the last successful result was
+ * served instead, how old that result is.
+ */
+public record LookupResult<T>(T value, Duration staleness, String etag) {
+
+    public static <T> LookupResult<T> fresh(T value, String etag) {
+        return new LookupResult<>(value, null, etag);
+    }
+
+    public static <T> LookupResult<T> stale(T value, Duration staleness, String etag) {
+        return new LookupResult<>(value, staleness, etag);
+    }
+
+    public boolean isStale() {
+        return staleness != null;
+    }
+}
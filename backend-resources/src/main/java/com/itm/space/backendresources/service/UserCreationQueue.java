@@ -0,0 +1,222 @@
+package com.itm.space.backendresources.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationJob;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates users in the background, so that a burst of sign-ups reaches Keycloak as a steady stream.
+ * <p>
+ * {@link #submit} puts the request into a queue of {@code keycloak.create-queue.capacity} jobs and returns at once;
+ * a full queue is answered with 429. {@code keycloak.create-queue.workers} threads take up to
+ * {@code keycloak.create-queue.batch-size} jobs at a time and start their creates no faster than
+ * {@code keycloak.create-queue.max-rate} per second between them. Keycloak creates one user per call, so a batch
+ * saves queue hand-offs, not Keycloak requests. Finished jobs can be looked up for
+ * {@code keycloak.create-queue.job-retention}. {@code users.create.queue.depth} and {@code users.create.queue.lag}
+ * report the backlog and how long its oldest job has been waiting.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "keycloak.create-queue.enabled", havingValue = "true")
+public class UserCreationQueue implements AutoCloseable {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final UserService userService;
+    private final BlockingQueue<PendingCreation> queue;
+    private final Cache<String, UserCreationJob> jobs;
+    private final ExecutorService workers;
+    private final int batchSize;
+    private final int maxRate;
+    private final long intervalNanos;
+    private final AtomicLong nextStartNanos = new AtomicLong(System.nanoTime());
+    private final Counter rejected;
+    private final Counter succeeded;
+    private final Counter failed;
+
+    public UserCreationQueue(UserService userService,
+                             MeterRegistry meterRegistry,
+                             @Value("${keycloak.create-queue.capacity:1000}") int capacity,
+                             @Value("${keycloak.create-queue.workers:2}") int workerCount,
+                             @Value("${keycloak.create-queue.batch-size:10}") int batchSize,
+                             @Value("${keycloak.create-queue.max-rate:50}") int maxRate,
+                             @Value("${keycloak.create-queue.job-retention:1h}") Duration jobRetention,
+                             @Value("${keycloak.create-queue.max-jobs:100000}") long maxJobs) {
+        requirePositive("capacity", capacity);
+        requirePositive("workers", workerCount);
+        requirePositive("batch-size", batchSize);
+        requirePositive("max-rate", maxRate);
+        this.userService = userService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(jobRetention)
+                .maximumSize(maxJobs)
+                .build();
+        this.batchSize = batchSize;
+        this.maxRate = maxRate;
+        this.intervalNanos = NANOS_PER_SECOND / maxRate;
+        this.rejected = jobCounter(meterRegistry, "rejected");
+        this.succeeded = jobCounter(meterRegistry, "succeeded");
+        this.failed = jobCounter(meterRegistry, "failed");
+        Gauge.builder("users.create.queue.depth", queue, BlockingQueue::size)
+                .description("User creations waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("users.create.queue.lag", this, UserCreationQueue::lagSeconds)
+                .description("Seconds the oldest waiting user creation has been queued")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "user-create-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    private static void requirePositive(String property, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("keycloak.create-queue." + property + " must be positive, but is "
+                    + value);
+        }
+    }
+
+    /**
+     * Queues the creation and returns its job, still {@code QUEUED}.
+     */
+    public UserCreationJob submit(UserRequest userRequest) {
+        UserCreationJob job = UserCreationJob.queued(UUID.randomUUID().toString(), Instant.now());
+        jobs.put(job.getId(), job);
+        if (!queue.offer(new PendingCreation(job, userRequest, System.nanoTime()))) {
+            jobs.invalidate(job.getId());
+            rejected.increment();
+            // about the time the current backlog takes to drain
+            long retryAfterSeconds = Math.max(1, queue.size() / maxRate);
+            throw new BackendResourcesException("Too many pending user creations", HttpStatus.TOO_MANY_REQUESTS,
+                    Duration.ofSeconds(retryAfterSeconds));
+        }
+        return job;
+    }
+
+    /**
+     * The job's current state, or {@code null} if it is unknown or has expired.
+     */
+    public UserCreationJob getJob(String id) {
+        return jobs.getIfPresent(id);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        List<PendingCreation> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(this::abandon);
+        if (!abandoned.isEmpty()) {
+            log.warn("Abandoned {} queued user creations on shutdown", abandoned.size());
+        }
+    }
+
+    private void work() {
+        List<PendingCreation> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                List<CompletableFuture<?>> creates = new ArrayList<>(batch.size());
+                for (PendingCreation pending : batch) {
+                    awaitStart();
+                    creates.add(start(pending));
+                }
+                batch.clear();
+                // the next batch waits for this one, so a slow Keycloak slows the workers down as well
+                CompletableFuture.allOf(creates.toArray(CompletableFuture[]::new))
+                        .exceptionally(ex -> null)
+                        .join();
+            }
+        } catch (InterruptedException ex) {
+            batch.stream().filter(pending -> jobs.getIfPresent(pending.job().getId()) == pending.job())
+                    .forEach(this::abandon);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the next start slot; slots are {@code 1 / max-rate} seconds apart and shared by all workers.
+     */
+    private void awaitStart() throws InterruptedException {
+        long now = System.nanoTime();
+        long slot = Math.max(nextStartNanos.getAndUpdate(next -> Math.max(next, now) + intervalNanos), now);
+        TimeUnit.NANOSECONDS.sleep(slot - now);
+    }
+
+    private CompletableFuture<String> start(PendingCreation pending) {
+        UserCreationJob job = pending.job();
+        jobs.put(job.getId(), job.running());
+        return userService.createUserAsync(pending.userRequest())
+                .whenComplete((userId, ex) -> {
+                    if (ex == null) {
+                        jobs.put(job.getId(), job.succeeded(userId, Instant.now()));
+                        succeeded.increment();
+                    } else {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        jobs.put(job.getId(), job.failed(statusOf(cause), cause.getMessage(), Instant.now()));
+                        failed.increment();
+                    }
+                });
+    }
+
+    private void abandon(PendingCreation pending) {
+        UserCreationJob job = pending.job();
+        jobs.put(job.getId(), job.failed(HttpStatus.SERVICE_UNAVAILABLE.value(), "Shutting down", Instant.now()));
+        failed.increment();
+    }
+
+    private double lagSeconds() {
+        PendingCreation oldest = queue.peek();
+        return oldest == null ? 0 : (double) (System.nanoTime() - oldest.queuedAtNanos()) / NANOS_PER_SECOND;
+    }
+
+    private static int statusOf(Throwable ex) {
+        if (ex instanceof BackendResourcesException backendResourcesException
+                && backendResourcesException.getHttpStatus() != null) {
+            return backendResourcesException.getHttpStatus().value();
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR.value();
+    }
+
+    private static Counter jobCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("users.create.jobs")
+                .description("Queued user creations by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record PendingCreation(UserCreationJob job, UserRequest userRequest, long queuedAtNanos) {
+    }
+}
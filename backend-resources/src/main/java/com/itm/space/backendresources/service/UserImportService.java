@@ -0,0 +1,121 @@
+package com.itm.space.backendresources.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserImportResult;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Creates users from a stream of {@link UserRequest} records, either NDJSON or a single JSON array.
+ * Records are read one at a time and at most {@code keycloak.import.max-in-flight} creates are
+ * outstanding, so reading stalls instead of buffering when Keycloak is slower than the client.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+    private final UserService userService;
+    private final Validator validator;
+    private final ObjectReader userRequestReader;
+
+    @Value("${keycloak.import.max-in-flight:8}")
+    private int maxInFlight;
+
+    public UserImportService(UserService userService,
+                             Validator validator,
+                             ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.validator = validator;
+        this.userRequestReader = objectMapper.readerFor(UserRequest.class);
+    }
+
+    /**
+     * Imports every record of {@code body} and reports one result per record to {@code sink}.
+     * Results arrive in completion order and may be delivered from pool threads.
+     */
+    public void importUsers(InputStream body, Consumer<UserImportResult> sink) throws IOException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long index = 0;
+        try (MappingIterator<UserRequest> records = openRecords(body)) {
+            UserRequest userRequest;
+            while ((userRequest = nextRecord(records, index, sink)) != null) {
+                long recordIndex = index++;
+                Set<ConstraintViolation<UserRequest>> violations = validator.validate(userRequest);
+                if (!violations.isEmpty()) {
+                    sink.accept(UserImportResult.failed(recordIndex, HttpStatus.BAD_REQUEST.value(), describe(violations)));
+                    continue;
+                }
+                inFlight.acquireUninterruptibly();
+                submit(recordIndex, userRequest, inFlight, sink);
+            }
+        } finally {
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+    }
+
+    private MappingIterator<UserRequest> openRecords(InputStream body) throws IOException {
+        JsonParser parser = userRequestReader.createParser(body);
+        if (parser.nextToken() == JsonToken.START_ARRAY) {
+            parser.nextToken();
+        }
+        return userRequestReader.readValues(parser);
+    }
+
+    private UserRequest nextRecord(MappingIterator<UserRequest> records, long index, Consumer<UserImportResult> sink) {
+        try {
+            return records.hasNextValue() ? records.nextValue() : null;
+        } catch (IOException ex) {
+            log.error("Exception on \"importUsers\": malformed record {}", index, ex);
+            sink.accept(UserImportResult.failed(index, HttpStatus.BAD_REQUEST.value(), "Malformed record"));
+            return null;
+        }
+    }
+
+    private void submit(long index, UserRequest userRequest, Semaphore inFlight, Consumer<UserImportResult> sink) {
+        userService.createUserAsync(userRequest)
+                .whenComplete((id, ex) -> {
+                    try {
+                        sink.accept(ex == null ? UserImportResult.created(index, id) : toFailure(index, unwrap(ex)));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    private static UserImportResult toFailure(long index, Throwable ex) {
+        if (ex instanceof BackendResourcesException backendResourcesException) {
+            HttpStatus status = backendResourcesException.getHttpStatus();
+            int statusCode = status == null ? HttpStatus.INTERNAL_SERVER_ERROR.value() : status.value();
+            return UserImportResult.failed(index, statusCode, ex.getMessage());
+        }
+        return UserImportResult.failed(index, HttpStatus.INTERNAL_SERVER_ERROR.value(), ex.getMessage());
+    }
+
+    private static String describe(Set<ConstraintViolation<UserRequest>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
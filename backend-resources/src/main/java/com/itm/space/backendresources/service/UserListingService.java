@@ -0,0 +1,186 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.api.response.UserListItem;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.worker.IdentityWorker;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import javax.ws.rs.WebApplicationException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Lists the realm's users page by page on top of Keycloak's offset search.
+ * <p>
+ * A page of {@code size} users is fetched from Keycloak in chunks of {@code keycloak.list.chunk-size} and every
+ * chunk is handed to the sink before the next one is requested, so memory stays flat however large the page.
+ * Roles and groups are only looked up when asked for, with at most {@code keycloak.list.max-in-flight} users being
+ * enriched at once. Cursors are opaque to clients; they encode the Keycloak offset of the next page.
+ */
+@Slf4j
+@Service
+public class UserListingService {
+    private static final String CURSOR_PREFIX = "o:";
+
+    private final IdentityWorker identityWorker;
+    private final UserMapper userMapper;
+
+    @Value("${keycloak.list.max-size:1000}")
+    private int maxSize;
+    @Value("${keycloak.list.chunk-size:100}")
+    private int chunkSize;
+    @Value("${keycloak.list.max-in-flight:8}")
+    private int maxInFlight;
+    @Value("${keycloak.executor.call-timeout:2s}")
+    private Duration callTimeout;
+    @Value("${keycloak.circuit-breaker.wait-duration-in-open-state:10s}")
+    private Duration circuitOpenRetryAfter;
+    @Value("${keycloak.bulkhead.retry-after:1s}")
+    private Duration bulkheadRetryAfter;
+
+    public UserListingService(IdentityWorker identityWorker, UserMapper userMapper) {
+        this.identityWorker = identityWorker;
+        this.userMapper = userMapper;
+    }
+
+    /**
+     * Streams one page to {@code sink} in Keycloak's order and returns the cursor of the next page, or {@code null}
+     * after the last one. {@code search} matches usernames and emails starting with it.
+     */
+    public String listUsers(String search, String cursor, int size, boolean enrich, Consumer<UserListItem> sink) {
+        if (size < 1 || size > maxSize) {
+            throw new BackendResourcesException("size must be between 1 and " + maxSize, HttpStatus.BAD_REQUEST);
+        }
+        String keycloakSearch = search == null || search.isBlank() ? null : search.strip() + "*";
+        int first = decodeCursor(cursor);
+        int remaining = size;
+        while (remaining > 0) {
+            int max = Math.min(chunkSize, remaining);
+            List<UserRepresentation> chunk =
+                    await(withCallTimeout(identityWorker.listUsers(keycloakSearch, first, max)));
+            if (enrich) {
+                emitEnriched(chunk, sink);
+            } else {
+                chunk.forEach(user -> sink.accept(userMapper.userRepresentationToUserListItem(user, null, null)));
+            }
+            first += chunk.size();
+            remaining -= chunk.size();
+            if (chunk.size() < max) {
+                return null;
+            }
+        }
+        return encodeCursor(first);
+    }
+
+    private void emitEnriched(List<UserRepresentation> chunk, Consumer<UserListItem> sink) {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<CompletableFuture<UserListItem>> items = new ArrayList<>(chunk.size());
+        for (UserRepresentation user : chunk) {
+            acquire(inFlight);
+            items.add(enrich(user).whenComplete((item, ex) -> inFlight.release()));
+        }
+        items.forEach(item -> sink.accept(await(item)));
+    }
+
+    /**
+     * Waits at most one call timeout for a permit: enrichments time out after that, so a permit that is still not
+     * free means they are not completing.
+     */
+    private void acquire(Semaphore inFlight) {
+        try {
+            if (!inFlight.tryAcquire(callTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw toBackendResourcesException(new TimeoutException());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BackendResourcesException(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private CompletableFuture<UserListItem> enrich(UserRepresentation user) {
+        UUID id = UUID.fromString(user.getId());
+        CompletableFuture<List<RoleRepresentation>> roles = withCallTimeout(identityWorker.getUserRoles(id));
+        CompletableFuture<List<GroupRepresentation>> groups = withCallTimeout(identityWorker.getUserGroups(id));
+        return roles.thenCombine(groups, (roleList, groupList) ->
+                userMapper.userRepresentationToUserListItem(user, roleList, groupList));
+    }
+
+    private <T> CompletableFuture<T> withCallTimeout(CompletableFuture<T> call) {
+        return call.orTimeout(callTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            log.error("Exception on \"listUsers\": ", cause);
+            throw toBackendResourcesException(cause);
+        }
+    }
+
+    private BackendResourcesException toBackendResourcesException(Throwable ex) {
+        if (ex instanceof BackendResourcesException backendResourcesException) {
+            return backendResourcesException;
+        }
+        if (ex instanceof TimeoutException) {
+            return new BackendResourcesException("Keycloak did not respond in time", HttpStatus.GATEWAY_TIMEOUT);
+        }
+        if (ex instanceof BulkheadFullException) {
+            return new BackendResourcesException("Too many concurrent Keycloak requests", HttpStatus.SERVICE_UNAVAILABLE,
+                    bulkheadRetryAfter);
+        }
+        if (ex instanceof CallNotPermittedException) {
+            return new BackendResourcesException("Keycloak is unavailable", HttpStatus.SERVICE_UNAVAILABLE,
+                    circuitOpenRetryAfter);
+        }
+        if (ex instanceof WebApplicationException webApplicationException
+                && webApplicationException.getResponse().getStatus() < 500) {
+            return BackendResourcesException.fromUpstream(ex.getMessage(),
+                    webApplicationException.getResponse().getStatus());
+        }
+        return new BackendResourcesException("Keycloak is unavailable", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private static String encodeCursor(int first) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + first).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                int first = Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+                if (first >= 0) {
+                    return first;
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            // fall through: NumberFormatException is an IllegalArgumentException too
+        }
+        throw new BackendResourcesException("Invalid cursor", HttpStatus.BAD_REQUEST);
+    }
+}
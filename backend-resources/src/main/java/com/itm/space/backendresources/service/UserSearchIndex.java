@@ -0,0 +1,179 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.api.response.UserListItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory substring index over the username, email, first and last name of users.
+ * <p>
+ * Every field is split into character trigrams, with a start-of-field marker in front so that two-character prefixes
+ * still have a trigram of their own; one-character prefixes use a posting list per first character. A posting list
+ * is a growable {@code int[]} of document numbers in ascending order. A query intersects the postings of its
+ * trigrams, rarest first, and checks the remaining candidates against the fields themselves; substring queries
+ * shorter than three characters scan all documents.
+ * <p>
+ * Documents are only ever appended: replacing or removing a user tombstones its previous document, and tombstones
+ * are dropped when the index is rebuilt. Queries share a read lock, changes take the write lock.
+ */
+final class UserSearchIndex {
+    private static final char FIELD_START = '\u0002';
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<UserListItem> documents = new ArrayList<>();
+    private final List<String[]> fields = new ArrayList<>();
+    private final BitSet removed = new BitSet();
+    private final Map<String, Integer> documentsById = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Character, Postings> firstCharacters = new HashMap<>();
+
+    /**
+     * Adds the user, replacing an earlier version with the same id.
+     */
+    void put(UserListItem user) {
+        String[] normalized = Stream.of(user.getUsername(), user.getEmail(), user.getFirstName(), user.getLastName())
+                .filter(field -> field != null && !field.isBlank())
+                .map(UserSearchIndex::normalize)
+                .toArray(String[]::new);
+        lock.writeLock().lock();
+        try {
+            int document = documents.size();
+            Integer previous = documentsById.put(user.getId(), document);
+            if (previous != null) {
+                removed.set(previous);
+            }
+            documents.add(user);
+            fields.add(normalized);
+            for (String field : normalized) {
+                firstCharacters.computeIfAbsent(field.charAt(0), key -> new Postings()).add(document);
+                String marked = FIELD_START + field;
+                for (int i = 0; i + 3 <= marked.length(); i++) {
+                    postings.computeIfAbsent(trigram(marked, i), key -> new Postings()).add(document);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer document = documentsById.remove(id);
+            if (document != null) {
+                removed.set(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documentsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Users with a field starting with ({@code prefix}) or containing {@code query}, ignoring case, in the order they
+     * were added; at most {@code limit}.
+     */
+    List<UserListItem> search(String query, boolean prefix, int limit) {
+        String normalized = normalize(query);
+        String needle = prefix ? FIELD_START + normalized : normalized;
+        List<UserListItem> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (prefix && normalized.length() == 1) {
+                Postings candidates = firstCharacters.get(normalized.charAt(0));
+                for (int i = 0; candidates != null && i < candidates.size && result.size() < limit; i++) {
+                    collect(candidates.documents[i], normalized, true, result);
+                }
+                return result;
+            }
+            if (needle.length() < 3) {
+                for (int document = 0; document < documents.size() && result.size() < limit; document++) {
+                    collect(document, normalized, prefix, result);
+                }
+                return result;
+            }
+            Postings[] lists = new Postings[needle.length() - 2];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(trigram(needle, i));
+                if (lists[i] == null) {
+                    return result;
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+            Postings rarest = lists[0];
+            for (int i = 0; i < rarest.size && result.size() < limit; i++) {
+                int document = rarest.documents[i];
+                if (containsAll(lists, document)) {
+                    collect(document, normalized, prefix, result);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(int document, String query, boolean prefix, List<UserListItem> result) {
+        if (removed.get(document)) {
+            return;
+        }
+        for (String field : fields.get(document)) {
+            if (prefix ? field.startsWith(query) : field.contains(query)) {
+                result.add(documents.get(document));
+                return;
+            }
+        }
+    }
+
+    private static boolean containsAll(Postings[] lists, int document) {
+        for (int i = 1; i < lists.length; i++) {
+            if (Arrays.binarySearch(lists[i].documents, 0, lists[i].size, document) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    private static String normalize(String text) {
+        return text.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Ascending document numbers; a document is appended once however often the trigram occurs in it.
+     */
+    private static final class Postings {
+        private int[] documents = new int[4];
+        private int size;
+
+        void add(int document) {
+            if (size > 0 && documents[size - 1] == document) {
+                return;
+            }
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = document;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.api.response.UserListItem;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.worker.IdentityCache;
+import com.itm.space.backendresources.worker.IdentityWorker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers user searches from a {@link UserSearchIndex} of the whole realm instead of Keycloak.
+ * <p>
+ * Once the application is ready the index is loaded page by page in the background and rebuilt every
+ * {@code keycloak.search-index.full-sync-interval}. Every {@code keycloak.search-index.delta-interval} the users
+ * named in Keycloak's admin events since the last sync are fetched again (or removed, if gone). Users created through
+ * this service are indexed right away. {@code users.index.lag} reports how far behind Keycloak the index may be.
+ * Admin events have to be enabled for the realm for the delta sync to see changes made elsewhere; without them,
+ * such changes appear with the next full rebuild.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "keycloak.search-index.enabled", havingValue = "true")
+public class UserSearchService implements AutoCloseable {
+    private final IdentityWorker identityWorker;
+    private final IdentityCache identityCache;
+    private final UserMapper userMapper;
+    private final MeterRegistry meterRegistry;
+    private final Timer searchTimer;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-index-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<UserListItem> pendingWrites = new ArrayList<>();
+
+    @Value("${keycloak.search-index.page-size:500}")
+    private int pageSize;
+    @Value("${keycloak.search-index.event-page-size:100}")
+    private int eventPageSize;
+    @Value("${keycloak.search-index.delta-interval:30s}")
+    private Duration deltaInterval;
+    @Value("${keycloak.search-index.full-sync-interval:1h}")
+    private Duration fullSyncInterval;
+    @Value("${keycloak.search-index.clock-skew:5s}")
+    private Duration clockSkew;
+    @Value("${keycloak.search-index.max-results:100}")
+    private int maxResults;
+
+    private volatile UserSearchIndex index;
+    private volatile long syncedAtMillis;
+    private long eventWatermarkMillis;
+    private boolean rebuilding;
+
+    public UserSearchService(IdentityWorker identityWorker,
+                             IdentityCache identityCache,
+                             UserMapper userMapper,
+                             MeterRegistry meterRegistry) {
+        this.identityWorker = identityWorker;
+        this.identityCache = identityCache;
+        this.userMapper = userMapper;
+        this.meterRegistry = meterRegistry;
+        this.searchTimer = Timer.builder("users.index.search")
+                .description("User searches answered from the local index")
+                .register(meterRegistry);
+        Gauge.builder("users.index.lag", this, UserSearchService::lagSeconds)
+                .description("Seconds since the search index last caught up with Keycloak")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("users.index.size", this, service -> service.index == null ? 0 : service.index.size())
+                .description("Users in the search index")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.execute(this::rebuild);
+        scheduler.scheduleWithFixedDelay(this::syncChanges, deltaInterval.toMillis(), deltaInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::rebuild, fullSyncInterval.toMillis(), fullSyncInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Users whose username, email, first or last name starts with ({@code prefix}) or contains {@code query}.
+     */
+    public List<UserListItem> search(String query, boolean prefix, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new BackendResourcesException("q must not be blank", HttpStatus.BAD_REQUEST);
+        }
+        if (limit < 1 || limit > maxResults) {
+            throw new BackendResourcesException("limit must be between 1 and " + maxResults, HttpStatus.BAD_REQUEST);
+        }
+        UserSearchIndex current = index;
+        if (current == null) {
+            throw new BackendResourcesException("User search index is still loading", HttpStatus.SERVICE_UNAVAILABLE,
+                    deltaInterval);
+        }
+        return searchTimer.record(() -> current.search(query, prefix, limit));
+    }
+
+    /**
+     * How far behind Keycloak search results may be.
+     */
+    public Duration getLag() {
+        return syncedAtMillis == 0 ? null : Duration.ofMillis(System.currentTimeMillis() - syncedAtMillis);
+    }
+
+    /**
+     * Write-through for users created by this service, so they can be found before the next sync.
+     */
+    public void indexCreated(String id, UserRepresentation user) {
+        UserListItem item = new UserListItem(id, user.getUsername(), user.getFirstName(), user.getLastName(),
+                user.getEmail(), null, null);
+        synchronized (pendingWrites) {
+            if (rebuilding) {
+                pendingWrites.add(item);
+            }
+            if (index != null) {
+                index.put(item);
+            }
+        }
+    }
+
+    /**
+     * Loads all users into a new index and swaps it in; the current index keeps serving until then.
+     */
+    public synchronized void rebuild() {
+        long startedAtMillis = System.currentTimeMillis();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        synchronized (pendingWrites) {
+            rebuilding = true;
+            pendingWrites.clear();
+        }
+        try {
+            UserSearchIndex next = new UserSearchIndex();
+            for (int first = 0; ; first += pageSize) {
+                List<UserRepresentation> page = identityWorker.listUsers(null, first, pageSize).join();
+                page.forEach(user -> next.put(userMapper.userRepresentationToUserListItem(user, null, null)));
+                if (page.size() < pageSize) {
+                    break;
+                }
+            }
+            syncedAtMillis = startedAtMillis;
+            synchronized (pendingWrites) {
+                pendingWrites.forEach(next::put);
+                index = next;
+            }
+            eventWatermarkMillis = startedAtMillis - clockSkew.toMillis();
+            sample.stop(syncTimer("full", "success"));
+            log.info("User search index loaded with {} users", next.size());
+        } catch (RuntimeException ex) {
+            sample.stop(syncTimer("full", "failure"));
+            log.warn("Could not load the user search index, {}: {}",
+                    index == null ? "retrying with the next sync" : "keeping the current one", ex.toString());
+        } finally {
+            synchronized (pendingWrites) {
+                rebuilding = false;
+                pendingWrites.clear();
+            }
+        }
+    }
+
+    /**
+     * Applies the users changed according to Keycloak's admin events since the last sync.
+     */
+    public synchronized void syncChanges() {
+        if (index == null) {
+            rebuild();
+            return;
+        }
+        long startedAtMillis = System.currentTimeMillis();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            long watermark = eventWatermarkMillis;
+            long newestEvent = watermark;
+            Set<UUID> changed = new LinkedHashSet<>();
+            String dateFrom = LocalDate.ofInstant(Instant.ofEpochMilli(watermark), ZoneOffset.UTC).minusDays(1).toString();
+            for (int first = 0; ; first += eventPageSize) {
+                List<AdminEventRepresentation> events =
+                        identityWorker.getUserAdminEvents(dateFrom, first, eventPageSize).join();
+                boolean reachedWatermark = false;
+                for (AdminEventRepresentation event : events) {
+                    if (event.getTime() < watermark) {
+                        reachedWatermark = true;
+                        continue;
+                    }
+                    newestEvent = Math.max(newestEvent, event.getTime() + 1);
+                    UUID id = userId(event.getResourcePath());
+                    if (id != null) {
+                        changed.add(id);
+                    }
+                }
+                if (reachedWatermark || events.size() < eventPageSize) {
+                    break;
+                }
+            }
+            for (UUID id : changed) {
+                refresh(id);
+            }
+            eventWatermarkMillis = newestEvent;
+            syncedAtMillis = startedAtMillis;
+            sample.stop(syncTimer("delta", "success"));
+            if (!changed.isEmpty()) {
+                log.debug("Updated {} users in the search index", changed.size());
+            }
+        } catch (RuntimeException ex) {
+            sample.stop(syncTimer("delta", "failure"));
+            log.warn("Could not sync the user search index: {}", ex.toString());
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void refresh(UUID id) {
+        identityCache.evict(id);
+        try {
+            UserRepresentation user = identityWorker.getUserById(id).join();
+            index.put(userMapper.userRepresentationToUserListItem(user, null, null));
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof WebApplicationException webApplicationException
+                    && webApplicationException.getResponse().getStatus() == 404) {
+                index.remove(id.toString());
+                return;
+            }
+            throw ex;
+        }
+    }
+
+    private Timer syncTimer(String type, String outcome) {
+        return Timer.builder("users.index.sync")
+                .description("Loads of the user search index from Keycloak")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private double lagSeconds() {
+        Duration lag = getLag();
+        return lag == null ? Double.NaN : lag.toMillis() / 1000.0;
+    }
+
+    /**
+     * The user a resource path such as {@code users/<id>} or {@code users/<id>/role-mappings} refers to.
+     */
+    private static UUID userId(String resourcePath) {
+        if (resourcePath == null || !resourcePath.startsWith("users/")) {
+            return null;
+        }
+        String[] segments = resourcePath.split("/");
+        try {
+            return UUID.fromString(segments[1]);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -1,14 +1,32 @@
 package com.itm.space.backendresources.service;
 
+import com.itm.space.backendresources.api.request.UserProjection;
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserBatchResponse;
 import com.itm.space.backendresources.api.response.UserResponse;
 
+import java.util.Collection;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface UserService {
 
-    void createUser(UserRequest userRequest);
+    String createUser(UserRequest userRequest);
 
-    UserResponse getUserById(UUID id);
+    CompletableFuture<String> createUserAsync(UserRequest userRequest);
+
+    LookupResult<UserResponse> getUserById(UUID id);
+
+    /**
+     * The fields of {@code projection} only, calling Keycloak for no more than those need.
+     */
+    LookupResult<UserResponse> getUserById(UUID id, UserProjection projection);
+
+    /**
+     * The ETag of the user's last lookup while it is still cached, or {@code null}; never calls Keycloak.
+     */
+    String getCachedETag(UUID id);
+
+    UserBatchResponse getUsersByIds(Collection<UUID> ids);
 
 }
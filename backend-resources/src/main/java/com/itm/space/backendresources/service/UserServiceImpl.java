@@ -1,63 +1,380 @@
 package com.itm.space.backendresources.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.itm.space.backendresources.api.request.UserProjection;
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserBatchResponse;
+import com.itm.space.backendresources.api.response.UserLookupError;
 import com.itm.space.backendresources.api.response.UserResponse;
 import com.itm.space.backendresources.exception.BackendResourcesException;
 import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.util.SingleFlight;
+import com.itm.space.backendresources.worker.IdentityCache;
 import com.itm.space.backendresources.worker.IdentityWorker;
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.keycloak.admin.client.CreatedResponseUtil;
-import org.keycloak.admin.client.Keycloak;
 import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.WebApplicationException;
-import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
     private final IdentityWorker identityWorker;
+    private final IdentityCache identityCache;
     private final UserMapper userMapper;
+    private final ObjectProvider<UserSearchService> userSearchService;
+    private final SingleFlight<UUID, UserResponse> userLookups;
+    private final Cache<UUID, LastKnownUser> lastKnownUsers;
+    private final Counter staleServed;
+    private final Timer mappingTimer;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> lookupCalls = new ConcurrentHashMap<>();
 
-    public void createUser(UserRequest userRequest) {
+    @Value("${keycloak.executor.call-timeout:2s}")
+    private Duration callTimeout;
+    @Value("${keycloak.executor.deadline:3s}")
+    private Duration deadline;
+    @Value("${keycloak.multi-get.max-ids:100}")
+    private int maxIdsPerRequest;
+    @Value("${keycloak.multi-get.max-in-flight:8}")
+    private int maxIdsInFlight;
+    @Value("${keycloak.circuit-breaker.wait-duration-in-open-state:10s}")
+    private Duration circuitOpenRetryAfter;
+    @Value("${keycloak.bulkhead.retry-after:1s}")
+    private Duration bulkheadRetryAfter;
+
+    public UserServiceImpl(IdentityWorker identityWorker,
+                           IdentityCache identityCache,
+                           UserMapper userMapper,
+                           ObjectProvider<UserSearchService> userSearchService,
+                           MeterRegistry meterRegistry,
+                           @Value("${keycloak.stale.max-age:10m}") Duration staleMaxAge,
+                           @Value("${keycloak.stale.max-size:10000}") long staleMaxSize) {
+        this.identityWorker = identityWorker;
+        this.identityCache = identityCache;
+        this.userMapper = userMapper;
+        this.userSearchService = userSearchService;
+        this.userLookups = new SingleFlight<>("keycloak.user.lookups", meterRegistry);
+        this.lastKnownUsers = Caffeine.newBuilder()
+                .maximumSize(staleMaxSize)
+                .expireAfterWrite(staleMaxAge)
+                .build();
+        this.staleServed = Counter.builder("users.stale")
+                .description("User lookups answered with the last known result because Keycloak was unavailable")
+                .register(meterRegistry);
+        this.mappingTimer = Timer.builder("users.mapping")
+                .description("Mapping of Keycloak representations to UserResponse")
+                .register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public String createUser(UserRequest userRequest) {
+        try {
+            return createUserAsync(userRequest).join();
+        } catch (CompletionException ex) {
+            throw toBackendResourcesException(ex.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> createUserAsync(UserRequest userRequest) {
         CredentialRepresentation password = preparePasswordRepresentation(userRequest.getPassword());
         UserRepresentation user = prepareUserRepresentation(userRequest, password);
+        return identityWorker.createUser(user)
+                .handle((userId, ex) -> {
+                    if (ex == null) {
+                        log.info("Created UserId: {}", userId);
+                        userSearchService.ifAvailable(search -> search.indexCreated(userId, user));
+                        return userId;
+                    }
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    log.error("Exception on \"createUser\": ", cause);
+                    if (cause instanceof WebApplicationException webApplicationException) {
+                        throw BackendResourcesException.fromUpstream(cause.getMessage(),
+                                webApplicationException.getResponse().getStatus());
+                    }
+                    throw toBackendResourcesException(cause);
+                });
+    }
+
+    @Override
+    public LookupResult<UserResponse> getUserById(UUID id) {
+        return getUserById(id, UserProjection.ALL);
+    }
+
+    @Override
+    public LookupResult<UserResponse> getUserById(UUID id, UserProjection projection) {
+        CompletableFuture<LookupResult<UserResponse>> userResponse = lookupUser(id, projection);
         try {
-            String userId = identityWorker.createUser(user);
-            log.info("Created UserId: {}", userId);
-        } catch (WebApplicationException ex) { log.error("Exception on \"createUser\": ", ex);
-            throw new BackendResourcesException(ex.getMessage(), HttpStatus.resolve(ex.getResponse().getStatus()));
+            return userResponse.get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BackendResourcesException(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        } catch (TimeoutException ex) {
+            // the lookup is abandoned, not cancelled: cancelling this composed future would not reach the
+            // IdentityWorker calls, which finish in the background within keycloak.executor.call-timeout
+            LookupResult<UserResponse> stale = lastKnown(id, projection);
+            if (stale != null) {
+                return stale;
+            }
+            log.error("Exception on \"getUserById\": deadline of {} exceeded", deadline);
+            throw toBackendResourcesException(ex);
+        } catch (ExecutionException ex) {
+            log.error("Exception on \"getUserById\": ", ex.getCause());
+            throw toBackendResourcesException(ex.getCause());
         }
     }
 
     @Override
-    public UserResponse getUserById(UUID id) {
-        UserRepresentation userRepresentation;
-        List<RoleRepresentation> userRoles;
-        List<GroupRepresentation> userGroups;
-        try {
-            userRepresentation = identityWorker.getUserById(id);
-            userRoles  = identityWorker.getUserRoles(id);
-            userGroups = identityWorker.getUserGroups(id);
+    public String getCachedETag(UUID id) {
+        return identityCache.etag(id);
+    }
 
-        } catch (RuntimeException ex) {
-            log.error("Exception on \"getUserById\": ", ex);
+    @Override
+    public UserBatchResponse getUsersByIds(Collection<UUID> ids) {
+        Set<UUID> uniqueIds = new LinkedHashSet<>(ids);
+        if (uniqueIds.size() > maxIdsPerRequest) {
+            throw new BackendResourcesException("At most " + maxIdsPerRequest + " ids can be requested at once",
+                    HttpStatus.BAD_REQUEST);
+        }
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        Semaphore inFlight = new Semaphore(maxIdsInFlight);
+        Map<UUID, CompletableFuture<LookupResult<UserResponse>>> lookups = new LinkedHashMap<>();
+        for (UUID id : uniqueIds) {
+            lookups.put(id, lookupUserWithPermit(id, inFlight, deadlineNanos));
+        }
+        try {
+            CompletableFuture.allOf(lookups.values().toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
             throw new BackendResourcesException(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        } catch (TimeoutException ex) {
+            log.error("Exception on \"getUsersByIds\": deadline of {} exceeded", deadline);
+        } catch (ExecutionException ex) {
+            // individual failures are reported per id below
+        }
+
+        Map<UUID, UserResponse> users = new LinkedHashMap<>();
+        Map<UUID, Long> stale = new LinkedHashMap<>();
+        Map<UUID, UserLookupError> errors = new LinkedHashMap<>();
+        lookups.forEach((id, lookup) -> {
+            LookupResult<UserResponse> result;
+            if (!lookup.isDone()) {
+                // abandoned like a timed-out getUserById; its calls finish in the background
+                result = lastKnown(id, UserProjection.ALL);
+                if (result == null) {
+                    errors.put(id, UserLookupError.of(toBackendResourcesException(new TimeoutException())));
+                    return;
+                }
+            } else {
+                try {
+                    result = lookup.join();
+                } catch (CompletionException ex) {
+                    log.error("Exception on \"getUsersByIds\" for {}: ", id, ex.getCause());
+                    errors.put(id, UserLookupError.of(toBackendResourcesException(ex.getCause())));
+                    return;
+                }
+            }
+            users.put(id, result.value());
+            if (result.isStale()) {
+                stale.put(id, result.staleness().toSeconds());
+            }
+        });
+        return new UserBatchResponse(users, stale, errors);
+    }
+
+    private CompletableFuture<LookupResult<UserResponse>> lookupUserWithPermit(UUID id, Semaphore inFlight, long deadlineNanos) {
+        try {
+            if (!inFlight.tryAcquire(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return CompletableFuture.failedFuture(new TimeoutException());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(ex);
         }
-        return userMapper.userRepresentationToUserResponse(userRepresentation, userRoles, userGroups);
+        return lookupUser(id, UserProjection.ALL).whenComplete((userResponse, ex) -> inFlight.release());
     }
 
+    /**
+     * Looks the user up in Keycloak and remembers the result; if Keycloak is unavailable (circuit open, bulkhead
+     * full, timeout, I/O or 5xx error) the last known result is served instead, for up to
+     * {@code keycloak.stale.max-age}. Only complete users are shared between concurrent lookups and remembered;
+     * a projection is served from the last known complete user.
+     */
+    private CompletableFuture<LookupResult<UserResponse>> lookupUser(UUID id, UserProjection projection) {
+        CompletableFuture<UserResponse> lookup = projection.isAll()
+                ? userLookups.execute(id, () -> fetchUser(id, projection))
+                : fetchUser(id, projection);
+        return lookup.handle((userResponse, ex) -> {
+            if (ex == null) {
+                String etag = etagOf(userResponse, projection);
+                if (projection.isAll()) {
+                    identityCache.putETag(id, etag);
+                    lastKnownUsers.put(id, new LastKnownUser(userResponse, etag, System.nanoTime()));
+                }
+                return LookupResult.fresh(userResponse, etag);
+            }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            LookupResult<UserResponse> stale = isUnavailable(cause) ? lastKnown(id, projection) : null;
+            if (stale == null) {
+                throw ex instanceof CompletionException completionException ? completionException : new CompletionException(ex);
+            }
+            log.warn("Keycloak unavailable for user {}, serving a result {} old: {}", id, stale.staleness(), cause.toString());
+            return stale;
+        });
+    }
+
+    private LookupResult<UserResponse> lastKnown(UUID id, UserProjection projection) {
+        LastKnownUser lastKnownUser = lastKnownUsers.getIfPresent(id);
+        if (lastKnownUser == null) {
+            return null;
+        }
+        staleServed.increment();
+        Duration staleness = Duration.ofNanos(System.nanoTime() - lastKnownUser.fetchedAtNanos());
+        if (projection.isAll()) {
+            return LookupResult.stale(lastKnownUser.userResponse(), staleness, lastKnownUser.etag());
+        }
+        UserResponse projected = userMapper.project(lastKnownUser.userResponse(), projection);
+        return LookupResult.stale(projected, staleness, etagOf(projected, projection));
+    }
+
+    private static boolean isUnavailable(Throwable ex) {
+        if (ex instanceof WebApplicationException webApplicationException) {
+            return webApplicationException.getResponse().getStatus() >= 500;
+        }
+        return ex instanceof CallNotPermittedException
+                || ex instanceof BulkheadFullException
+                || ex instanceof RejectedExecutionException
+                || ex instanceof TimeoutException
+                || ex instanceof ProcessingException;
+    }
+
+    /**
+     * Makes only the {@link IdentityWorker} calls the projection needs; the others are skipped and their part of
+     * the response stays empty. {@code users.lookup.calls} counts the calls made per projection.
+     */
+    private CompletableFuture<UserResponse> fetchUser(UUID id, UserProjection projection) {
+        CompletableFuture<UserRepresentation> userRepresentation = projection.needsUser()
+                ? call(projection, "user", () -> identityWorker.getUserById(id))
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<List<RoleRepresentation>> userRoles = projection.needsRoles()
+                ? call(projection, "roles", () -> identityWorker.getUserRoles(id))
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<List<GroupRepresentation>> userGroups = projection.needsGroups()
+                ? call(projection, "groups", () -> identityWorker.getUserGroups(id))
+                : CompletableFuture.completedFuture(null);
+        return CompletableFuture.allOf(userRepresentation, userRoles, userGroups)
+                .thenApply(ignored -> mappingTimer.record(() -> userMapper.project(
+                        userMapper.userRepresentationToUserResponse(
+                                userRepresentation.join(), userRoles.join(), userGroups.join()),
+                        projection)));
+    }
+
+    private <T> CompletableFuture<T> call(UserProjection projection, String call, Supplier<CompletableFuture<T>> lookup) {
+        lookupCalls.computeIfAbsent(projection.name() + ':' + call, key -> Counter.builder("users.lookup.calls")
+                        .description("IdentityWorker calls made for user lookups, by projection")
+                        .tag("projection", projection.name())
+                        .tag("call", call)
+                        .register(meterRegistry))
+                .increment();
+        return withCallTimeout(lookup.get());
+    }
+
+    private <T> CompletableFuture<T> withCallTimeout(CompletableFuture<T> call) {
+        return call.orTimeout(callTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private BackendResourcesException toBackendResourcesException(Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            return toBackendResourcesException(ex.getCause());
+        }
+        if (ex instanceof BackendResourcesException backendResourcesException) {
+            return backendResourcesException;
+        }
+        if (ex instanceof TimeoutException) {
+            return new BackendResourcesException("Keycloak did not respond in time", HttpStatus.GATEWAY_TIMEOUT);
+        }
+        if (ex instanceof RejectedExecutionException) {
+            return new BackendResourcesException("Too many concurrent Keycloak requests", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (ex instanceof BulkheadFullException) {
+            return new BackendResourcesException("Too many concurrent Keycloak requests", HttpStatus.SERVICE_UNAVAILABLE,
+                    bulkheadRetryAfter);
+        }
+        if (ex instanceof CallNotPermittedException) {
+            return new BackendResourcesException("Keycloak is unavailable", HttpStatus.SERVICE_UNAVAILABLE,
+                    circuitOpenRetryAfter);
+        }
+        return new BackendResourcesException(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * A strong ETag over every field of the response, so it changes whenever the JSON would; a projection's name
+     * goes into it as well, so that it differs from the complete user's.
+     */
+    private static String etagOf(UserResponse userResponse, UserProjection projection) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        if (!projection.isAll()) {
+            digest.update(projection.name().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        Stream.of(userResponse.getFirstName(), userResponse.getLastName(), userResponse.getEmail(),
+                        String.join("\u001f", nullToEmpty(userResponse.getRoles())),
+                        String.join("\u001f", nullToEmpty(userResponse.getGroups())))
+                .forEach(field -> {
+                    digest.update(String.valueOf(field).getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                });
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest.digest(), 16)) + "\"";
+    }
+
+    private static List<String> nullToEmpty(List<String> values) {
+        return values == null ? List.of() : values;
+    }
 
     private CredentialRepresentation preparePasswordRepresentation(String password) {
         CredentialRepresentation credentialRepresentation = new CredentialRepresentation();
@@ -78,4 +395,7 @@ public class UserServiceImpl implements UserService {
         newUser.setLastName(userRequest.getLastName());
         return newUser;
     }
+
+    private record LastKnownUser(UserResponse userResponse, String etag, long fetchedAtNanos) {
+    }
 }
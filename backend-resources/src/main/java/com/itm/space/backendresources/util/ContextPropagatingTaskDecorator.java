@@ -0,0 +1,37 @@
+package com.itm.space.backendresources.util;
+
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+
+import java.util.Map;
+
+/**
+ * Carries the caller's {@link org.springframework.security.core.context.SecurityContext} and MDC
+ * over to the pool thread that runs the task, and restores the pool thread's own MDC afterwards.
+ */
+public class ContextPropagatingTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Map<String, String> callerMdc = MDC.getCopyOfContextMap();
+        Runnable securedRunnable = new DelegatingSecurityContextRunnable(runnable);
+        return () -> {
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            setMdc(callerMdc);
+            try {
+                securedRunnable.run();
+            } finally {
+                setMdc(previousMdc);
+            }
+        };
+    }
+
+    private static void setMdc(Map<String, String> contextMap) {
+        if (contextMap == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(contextMap);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.itm.space.backendresources.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller starts the call and every caller
+ * that arrives while it is in flight shares its result or exception.
+ * <p>
+ * Each caller gets its own copy of the shared future, so cancelling one (e.g. on a deadline)
+ * does not affect the others. Metrics: {@code <name>} counter tagged {@code coalesced=true|false}
+ * and {@code <name>.in-flight} gauge.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executed = Counter.builder(name).tag("coalesced", "false").register(meterRegistry);
+        this.coalesced = Counter.builder(name).tag("coalesced", "true").register(meterRegistry);
+        Gauge.builder(name + ".in-flight", inFlight, ConcurrentMap::size).register(meterRegistry);
+    }
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> shared = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+        executed.increment();
+        CompletableFuture<V> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException ex) {
+            result = CompletableFuture.failedFuture(ex);
+        }
+        result.whenComplete((value, ex) -> {
+            inFlight.remove(key, shared);
+            if (ex != null) {
+                shared.completeExceptionally(ex);
+            } else {
+                shared.complete(value);
+            }
+        });
+        return shared.copy();
+    }
+}
@@ -0,0 +1,76 @@
+package com.itm.space.backendresources.worker;
+
+import com.itm.space.backendresources.configuration.CacheConfiguration;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Read-through caching for the {@link IdentityWorker} implementations. {@code @Cacheable} would store the
+ * {@link CompletableFuture} itself, failures included, so values are put once the lookup has succeeded.
+ * The ETags of users built from these values are kept here too, so evicting a user also invalidates its ETag.
+ */
+@Component
+public class IdentityCache {
+    private final Cache users;
+    private final Cache roles;
+    private final Cache groups;
+    private final Cache etags;
+
+    public IdentityCache(CacheManager cacheManager) {
+        this.users = cacheManager.getCache(CacheConfiguration.USERS_CACHE);
+        this.roles = cacheManager.getCache(CacheConfiguration.USER_ROLES_CACHE);
+        this.groups = cacheManager.getCache(CacheConfiguration.USER_GROUPS_CACHE);
+        this.etags = cacheManager.getCache(CacheConfiguration.USER_ETAGS_CACHE);
+    }
+
+    public CompletableFuture<UserRepresentation> user(UUID id, Supplier<CompletableFuture<UserRepresentation>> loader) {
+        return getOrLoad(users, id, loader);
+    }
+
+    public CompletableFuture<List<RoleRepresentation>> roles(UUID id, Supplier<CompletableFuture<List<RoleRepresentation>>> loader) {
+        return getOrLoad(roles, id, loader);
+    }
+
+    public CompletableFuture<List<GroupRepresentation>> groups(UUID id, Supplier<CompletableFuture<List<GroupRepresentation>>> loader) {
+        return getOrLoad(groups, id, loader);
+    }
+
+    /**
+     * The ETag of the user as last looked up, or {@code null}; never calls Keycloak.
+     */
+    public String etag(UUID id) {
+        return etags.get(id, String.class);
+    }
+
+    public void putETag(UUID id, String etag) {
+        etags.put(id, etag);
+    }
+
+    public void evict(UUID id) {
+        users.evict(id);
+        roles.evict(id);
+        groups.evict(id);
+        etags.evict(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> CompletableFuture<T> getOrLoad(Cache cache, UUID id, Supplier<CompletableFuture<T>> loader) {
+        Cache.ValueWrapper cached = cache.get(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture((T) cached.get());
+        }
+        return loader.get().thenApply(value -> {
+            cache.put(id, value);
+            return value;
+        });
+    }
+}
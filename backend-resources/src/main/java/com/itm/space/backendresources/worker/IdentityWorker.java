@@ -1,55 +1,38 @@
 package com.itm.space.backendresources.worker;
 
-import com.itm.space.backendresources.api.response.UserResponse;
-import com.itm.space.backendresources.exception.BackendResourcesException;
-import com.itm.space.backendresources.mapper.UserMapper;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.keycloak.admin.client.CreatedResponseUtil;
-import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.AdminEventRepresentation;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
-import org.springframework.stereotype.Service;
 
-import javax.ws.rs.WebApplicationException;
-import javax.ws.rs.core.Response;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
-@Slf4j
-@Service
-@RequiredArgsConstructor
-public class IdentityWorker {
-    private final Keycloak keycloakClient;
-
-    @Value("${keycloak.realm}")
-    private String realm;
-
-    public String createUser(UserRepresentation userRepresentation) {
-
-            Response response = keycloakClient.realm(realm).users().create(userRepresentation);
-            return CreatedResponseUtil.getCreatedId(response);
-
-    }
-
-    public List<GroupRepresentation> getUserGroups(UUID id) {
-        List<GroupRepresentation> userGroups;
-        userGroups = keycloakClient.realm(realm).users().get(String.valueOf(id)).groups();
-        return userGroups;
-    }
-    public List<RoleRepresentation> getUserRoles(UUID id) {
-        List<RoleRepresentation> userRoles;
-        userRoles = keycloakClient.realm(realm).users().get(String.valueOf(id)).roles().getAll().getRealmMappings();
-        return userRoles;
-    }
-
-    public UserRepresentation getUserById(UUID id) {
-        UserRepresentation userRepresentation;
-        userRepresentation = keycloakClient.realm(realm).users().get(String.valueOf(id)).toRepresentation();
-        return userRepresentation;
-    }
-}
\ No newline at end of file
+/**
+ * Keycloak admin operations used by the service layer. Implementations are selected with {@code keycloak.worker}
+ * ({@code admin-client} or {@code webclient}); Keycloak HTTP errors complete the futures with
+ * {@link javax.ws.rs.WebApplicationException}, transport failures with {@link javax.ws.rs.ProcessingException}.
+ */
+public interface IdentityWorker {
+
+    CompletableFuture<String> createUser(UserRepresentation userRepresentation);
+
+    CompletableFuture<UserRepresentation> getUserById(UUID id);
+
+    CompletableFuture<List<RoleRepresentation>> getUserRoles(UUID id);
+
+    CompletableFuture<List<GroupRepresentation>> getUserGroups(UUID id);
+
+    /**
+     * Brief representations of the realm's users in Keycloak's order, {@code first} to {@code first + max};
+     * {@code search} is passed to Keycloak's user search as-is, {@code null} lists everyone.
+     */
+    CompletableFuture<List<UserRepresentation>> listUsers(String search, int first, int max);
+
+    /**
+     * Admin events on users, newest first, from the start of {@code dateFrom} ({@code yyyy-MM-dd}, the finest
+     * granularity Keycloak filters on). Empty unless admin events are enabled for the realm.
+     */
+    CompletableFuture<List<AdminEventRepresentation>> getUserAdminEvents(String dateFrom, int first, int max);
+}
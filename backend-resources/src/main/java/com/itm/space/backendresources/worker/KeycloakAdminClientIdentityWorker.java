@@ -0,0 +1,102 @@
+package com.itm.space.backendresources.worker;
+
+import org.keycloak.admin.client.CreatedResponseUtil;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * {@link IdentityWorker} on the blocking JAX-RS admin client; every call occupies a {@code keycloakExecutor}
+ * thread for the whole round trip.
+ */
+@Service
+@ConditionalOnProperty(name = "keycloak.worker", havingValue = "admin-client", matchIfMissing = true)
+public class KeycloakAdminClientIdentityWorker implements IdentityWorker {
+    private final Keycloak keycloakClient;
+    private final KeycloakRequestMetrics metrics;
+    private final KeycloakResilience resilience;
+    private final IdentityCache identityCache;
+    private final Executor keycloakExecutor;
+
+    @Value("${keycloak.realm}")
+    private String realm;
+
+    public KeycloakAdminClientIdentityWorker(Keycloak keycloakClient,
+                                             KeycloakRequestMetrics metrics,
+                                             KeycloakResilience resilience,
+                                             IdentityCache identityCache,
+                                             @Qualifier("keycloakExecutor") Executor keycloakExecutor) {
+        this.keycloakClient = keycloakClient;
+        this.metrics = metrics;
+        this.resilience = resilience;
+        this.identityCache = identityCache;
+        this.keycloakExecutor = keycloakExecutor;
+    }
+
+    @Override
+    public CompletableFuture<String> createUser(UserRepresentation userRepresentation) {
+        return call("createUser", () -> {
+            try (Response response = keycloakClient.realm(realm).users().create(userRepresentation)) {
+                return CreatedResponseUtil.getCreatedId(response);
+            }
+        }).thenApply(id -> {
+            identityCache.evict(UUID.fromString(id));
+            return id;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<GroupRepresentation>> getUserGroups(UUID id) {
+        return identityCache.groups(id, () -> call("getUserGroups", () -> user(id).groups()));
+    }
+
+    @Override
+    public CompletableFuture<List<RoleRepresentation>> getUserRoles(UUID id) {
+        return identityCache.roles(id, () -> call("getUserRoles", () -> user(id).roles().getAll().getRealmMappings()));
+    }
+
+    @Override
+    public CompletableFuture<UserRepresentation> getUserById(UUID id) {
+        return identityCache.user(id, () -> call("getUserById", () -> user(id).toRepresentation()));
+    }
+
+    @Override
+    public CompletableFuture<List<UserRepresentation>> listUsers(String search, int first, int max) {
+        return call("listUsers", () -> keycloakClient.realm(realm).users().search(search, first, max, true));
+    }
+
+    @Override
+    public CompletableFuture<List<AdminEventRepresentation>> getUserAdminEvents(String dateFrom, int first, int max) {
+        return call("getUserAdminEvents", () -> keycloakClient.realm(realm).getAdminEvents(
+                null, null, null, null, null, null, List.of("USER"), dateFrom, null, first, max));
+    }
+
+    private UserResource user(UUID id) {
+        return keycloakClient.realm(realm).users().get(String.valueOf(id));
+    }
+
+    private <T> CompletableFuture<T> call(String operation, Supplier<T> call) {
+        return resilience.call(operation, () -> {
+            try {
+                return CompletableFuture.supplyAsync(() -> metrics.record(operation, call), keycloakExecutor);
+            } catch (RejectedExecutionException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        });
+    }
+}
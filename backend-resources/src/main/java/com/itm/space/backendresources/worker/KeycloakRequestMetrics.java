@@ -0,0 +1,80 @@
+package com.itm.space.backendresources.worker;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times Keycloak admin calls as {@code keycloak.requests}, tagged by operation and outcome.
+ * Timers are resolved once per operation/outcome pair so the hot path only does a map lookup.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeycloakRequestMetrics {
+    public static final String SUCCESS = "success";
+    public static final String CLIENT_ERROR = "client_error";
+    public static final String SERVER_ERROR = "server_error";
+    public static final String IO_ERROR = "io_error";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public <T> T record(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        String outcome = SUCCESS;
+        try {
+            return call.get();
+        } catch (RuntimeException ex) {
+            outcome = outcomeOf(ex);
+            throw ex;
+        } finally {
+            timer(operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public <T> CompletableFuture<T> recordAsync(String operation, Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException ex) {
+            timer(operation, outcomeOf(ex)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+        return future.whenComplete((value, ex) -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            timer(operation, cause == null ? SUCCESS : outcomeOf(cause)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    public Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + ':' + outcome, key -> Timer.builder("keycloak.requests")
+                .description("Keycloak admin API calls")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    public static String outcomeOf(Throwable ex) {
+        if (ex instanceof WebApplicationException webApplicationException) {
+            int status = webApplicationException.getResponse().getStatus();
+            return status >= 500 ? SERVER_ERROR : CLIENT_ERROR;
+        }
+        if (ex instanceof ProcessingException) {
+            return IO_ERROR;
+        }
+        return ERROR;
+    }
+}
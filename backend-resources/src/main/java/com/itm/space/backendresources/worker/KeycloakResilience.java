@@ -0,0 +1,30 @@
+package com.itm.space.backendresources.worker;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Guards {@link IdentityWorker} calls with the operation's circuit breaker and the shared Keycloak bulkhead.
+ * A rejected call fails immediately with {@link io.github.resilience4j.circuitbreaker.CallNotPermittedException}
+ * or {@link io.github.resilience4j.bulkhead.BulkheadFullException} and never reaches Keycloak.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeycloakResilience {
+    private final CircuitBreakerRegistry keycloakCircuitBreakers;
+    private final Bulkhead keycloakBulkhead;
+
+    public <T> CompletableFuture<T> call(String operation, Supplier<CompletableFuture<T>> call) {
+        CircuitBreaker circuitBreaker = keycloakCircuitBreakers.circuitBreaker(operation);
+        return CircuitBreaker.decorateCompletionStage(circuitBreaker,
+                        Bulkhead.decorateCompletionStage(keycloakBulkhead, call::get))
+                .get()
+                .toCompletableFuture();
+    }
+}
@@ -0,0 +1,188 @@
+package com.itm.space.backendresources.worker;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.AccessTokenResponse;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Client-credentials access token for the Keycloak admin API, refreshed ahead of expiry on a background thread.
+ * <p>
+ * Readers get the current token from a volatile field without locking. A refresh is scheduled at
+ * {@code refreshAt} of the token's lifetime, brought forward by a random share of up to {@code jitter} of the
+ * lifetime so that replicas do not refresh in lockstep. Only one refresh runs at a time; a reader blocks on it only
+ * when no usable token is left, e.g. before the first grant or after Keycloak was unreachable for a whole token
+ * lifetime. Failed refreshes are retried every {@code retryInterval}.
+ * <p>
+ * Also a JAX-RS filter: registered on the admin client it sets the {@code Authorization} header and drops a token
+ * Keycloak answered with 401. Metrics: {@code keycloak.token.refresh} timer tagged by trigger and outcome, and
+ * {@code keycloak.token.remaining} gauge with the seconds left on the current token.
+ */
+@Slf4j
+public class KeycloakTokenManager implements ClientRequestFilter, ClientResponseFilter, AutoCloseable {
+    private static final String BEARER = "Bearer ";
+
+    private final Supplier<AccessTokenResponse> grant;
+    private final double refreshAt;
+    private final double jitter;
+    private final Duration minValidity;
+    private final Duration retryInterval;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "keycloak-token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Token current;
+    private ScheduledFuture<?> nextRefresh;
+
+    public KeycloakTokenManager(Supplier<AccessTokenResponse> grant,
+                                double refreshAt,
+                                double jitter,
+                                Duration minValidity,
+                                Duration retryInterval,
+                                MeterRegistry meterRegistry) {
+        this.grant = grant;
+        this.refreshAt = refreshAt;
+        this.jitter = jitter;
+        this.minValidity = minValidity;
+        this.retryInterval = retryInterval;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("keycloak.token.remaining", this, KeycloakTokenManager::remainingSeconds)
+                .description("Seconds until the Keycloak admin access token expires")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Requests the first token in the background, so startup does not wait for Keycloak.
+     */
+    public void start() {
+        scheduler.execute(() -> refreshInBackground("startup"));
+    }
+
+    public String getAccessTokenString() {
+        Token token = current;
+        if (token != null && token.isUsable()) {
+            return token.value();
+        }
+        return refresh("request", token).value();
+    }
+
+    /**
+     * Drops {@code accessToken} if it is still the current one, so the next reader fetches a new token.
+     */
+    public void invalidate(String accessToken) {
+        Token token = current;
+        if (token != null && token.value().equals(accessToken)) {
+            synchronized (this) {
+                if (current == token) {
+                    current = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        requestContext.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, BEARER + getAccessTokenString());
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+        if (responseContext.getStatus() == 401) {
+            String authorization = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+            if (authorization != null && authorization.startsWith(BEARER)) {
+                invalidate(authorization.substring(BEARER.length()));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Fetches a new token unless another thread replaced {@code stale} while this one waited for the lock.
+     */
+    private synchronized Token refresh(String trigger, Token stale) {
+        Token token = current;
+        if (token != stale && token != null && token.isUsable()) {
+            return token;
+        }
+        long start = System.nanoTime();
+        try {
+            AccessTokenResponse response = grant.get();
+            long lifetimeNanos = TimeUnit.SECONDS.toNanos(response.getExpiresIn());
+            token = new Token(response.getToken(), start + lifetimeNanos - minValidity.toNanos());
+            current = token;
+            timer(trigger, "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            double share = refreshAt - ThreadLocalRandom.current().nextDouble() * jitter;
+            scheduleRefresh("scheduled", (long) (lifetimeNanos * Math.max(share, 0)));
+            return token;
+        } catch (RuntimeException ex) {
+            timer(trigger, KeycloakRequestMetrics.outcomeOf(ex)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+    }
+
+    private void refreshInBackground(String trigger) {
+        try {
+            refresh(trigger, current);
+        } catch (RuntimeException ex) {
+            log.warn("Keycloak access token refresh failed, retrying in {}: {}", retryInterval, ex.toString());
+            scheduleRefresh("retry", retryInterval.toNanos());
+        }
+    }
+
+    /**
+     * Replaces the pending background refresh, so a refresh done by a reader does not leave a second one scheduled.
+     */
+    private synchronized void scheduleRefresh(String trigger, long delayNanos) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        nextRefresh = scheduler.schedule(() -> refreshInBackground(trigger), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String trigger, String outcome) {
+        return Timer.builder("keycloak.token.refresh")
+                .description("Client-credentials grants for the Keycloak admin API")
+                .tag("trigger", trigger)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private double remainingSeconds() {
+        Token token = current;
+        if (token == null) {
+            return 0;
+        }
+        return Math.max(token.expiresAtNanos() - System.nanoTime(), 0) / 1e9;
+    }
+
+    private record Token(String value, long expiresAtNanos) {
+        boolean isUsable() {
+            return System.nanoTime() - expiresAtNanos < 0;
+        }
+    }
+}
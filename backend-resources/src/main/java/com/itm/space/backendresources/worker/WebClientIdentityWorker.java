@@ -0,0 +1,163 @@
+package com.itm.space.backendresources.worker;
+
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.MappingsRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * {@link IdentityWorker} calling the Keycloak admin REST API through a non-blocking {@link WebClient}, so an
+ * outstanding call holds no thread. The bearer token comes from {@link KeycloakTokenManager}, shared with the
+ * admin client, and is dropped there when Keycloak answers 401 to it.
+ */
+@Service
+@ConditionalOnProperty(name = "keycloak.worker", havingValue = "webclient")
+public class WebClientIdentityWorker implements IdentityWorker {
+    private static final ParameterizedTypeReference<List<GroupRepresentation>> GROUPS = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<UserRepresentation>> USERS = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<AdminEventRepresentation>> ADMIN_EVENTS = new ParameterizedTypeReference<>() {
+    };
+
+    private final WebClient webClient;
+    private final KeycloakTokenManager tokenManager;
+    private final KeycloakRequestMetrics metrics;
+    private final KeycloakResilience resilience;
+    private final IdentityCache identityCache;
+
+    public WebClientIdentityWorker(@Qualifier("keycloakWebClient") WebClient webClient,
+                                   KeycloakTokenManager tokenManager,
+                                   KeycloakRequestMetrics metrics,
+                                   KeycloakResilience resilience,
+                                   IdentityCache identityCache) {
+        this.webClient = webClient;
+        this.tokenManager = tokenManager;
+        this.metrics = metrics;
+        this.resilience = resilience;
+        this.identityCache = identityCache;
+    }
+
+    @Override
+    public CompletableFuture<String> createUser(UserRepresentation userRepresentation) {
+        return call("createUser", () -> retrieve(webClient.post()
+                .uri("/users")
+                .bodyValue(userRepresentation))
+                .toBodilessEntity()
+                .map(response -> createdId(response.getHeaders().getLocation())))
+                .thenApply(id -> {
+                    identityCache.evict(UUID.fromString(id));
+                    return id;
+                });
+    }
+
+    @Override
+    public CompletableFuture<UserRepresentation> getUserById(UUID id) {
+        return identityCache.user(id, () -> call("getUserById",
+                () -> get("/users/{id}", id).bodyToMono(UserRepresentation.class)));
+    }
+
+    @Override
+    public CompletableFuture<List<RoleRepresentation>> getUserRoles(UUID id) {
+        return identityCache.roles(id, () -> call("getUserRoles",
+                () -> get("/users/{id}/role-mappings", id).bodyToMono(MappingsRepresentation.class)
+                        .map(MappingsRepresentation::getRealmMappings)));
+    }
+
+    @Override
+    public CompletableFuture<List<GroupRepresentation>> getUserGroups(UUID id) {
+        return identityCache.groups(id, () -> call("getUserGroups",
+                () -> get("/users/{id}/groups", id).bodyToMono(GROUPS)));
+    }
+
+    @Override
+    public CompletableFuture<List<UserRepresentation>> listUsers(String search, int first, int max) {
+        return call("listUsers", () -> retrieve(webClient.get()
+                .uri(uri -> {
+                    uri.path("/users")
+                            .queryParam("first", first)
+                            .queryParam("max", max)
+                            .queryParam("briefRepresentation", true);
+                    if (search != null) {
+                        // as a template variable, so characters like '+' in an email are encoded strictly
+                        uri.queryParam("search", "{search}");
+                    }
+                    return uri.build(Collections.singletonMap("search", search));
+                }))
+                .bodyToMono(USERS));
+    }
+
+    @Override
+    public CompletableFuture<List<AdminEventRepresentation>> getUserAdminEvents(String dateFrom, int first, int max) {
+        return call("getUserAdminEvents", () -> retrieve(webClient.get()
+                .uri(uri -> uri.path("/admin-events")
+                        .queryParam("resourceTypes", "USER")
+                        .queryParam("dateFrom", dateFrom)
+                        .queryParam("first", first)
+                        .queryParam("max", max)
+                        .build()))
+                .bodyToMono(ADMIN_EVENTS));
+    }
+
+    private WebClient.ResponseSpec get(String path, UUID id) {
+        return retrieve(webClient.get().uri(path, id));
+    }
+
+    /**
+     * Sends {@code request} with the current token, remembered so that it can be dropped if Keycloak rejects it.
+     */
+    private WebClient.ResponseSpec retrieve(WebClient.RequestHeadersSpec<?> request) {
+        String accessToken = accessToken();
+        return request.headers(headers -> headers.setBearerAuth(accessToken))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, response -> toWebApplicationException(response, accessToken));
+    }
+
+    private <T> CompletableFuture<T> call(String operation, Supplier<Mono<T>> call) {
+        return resilience.call(operation, () -> metrics.recordAsync(operation, () -> call.get()
+                .onErrorMap(WebClientRequestException.class, ProcessingException::new)
+                .toFuture()));
+    }
+
+    private String accessToken() {
+        // refreshed ahead of expiry in the background, so this is normally a volatile read
+        return tokenManager.getAccessTokenString();
+    }
+
+    private Mono<Throwable> toWebApplicationException(ClientResponse response, String accessToken) {
+        if (response.statusCode().value() == HttpStatus.UNAUTHORIZED.value()) {
+            // Keycloak rejected the token, so the next call fetches a new one instead of waiting for the refresh
+            tokenManager.invalidate(accessToken);
+        }
+        return response.createException()
+                .map(ex -> new WebApplicationException(ex.getMessage(), ex, response.statusCode().value()));
+    }
+
+    private static String createdId(URI location) {
+        if (location == null) {
+            throw new WebApplicationException("Create response has no Location header", 500);
+        }
+        String path = location.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,226 @@
+package com.itm.space.backendresources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.util.JsonUtil;
+import com.itm.space.backendresources.worker.IdentityWorker;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {
+        "api.async.enabled=true",
+        "api.async.executor.pool-size=1",
+        "api.async.executor.queue-capacity=1"
+})
+public class AsyncUserControllerIntegrationTest extends BaseIntegrationTest {
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    @Qualifier("apiExecutor")
+    private ThreadPoolTaskExecutor apiExecutor;
+
+    @MockBean
+    private IdentityWorker identityWorker;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void drainExecutor() throws InterruptedException {
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((apiExecutor.getActiveCount() > 0 || !apiExecutor.getThreadPoolExecutor().getQueue().isEmpty())
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    @WithMockUser(username = "moderator", roles = {"MODERATOR"})
+    void getUserByIdCompletesAsynchronouslyWithCallerSecurityContext() throws Exception {
+        UUID id = UUID.randomUUID();
+        AtomicReference<String> principal = new AtomicReference<>();
+        doAnswer(invocation -> {
+            principal.set(SecurityContextHolder.getContext().getAuthentication().getName());
+            return completedFuture(createUserRepresentation());
+        }).when(identityWorker).getUserById(id);
+        doReturn(completedFuture(List.of())).when(identityWorker).getUserRoles(id);
+        doReturn(completedFuture(List.of())).when(identityWorker).getUserGroups(id);
+
+        MvcResult result = mvc.perform(get("/api/users/{id}", id))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.firstName").value("John"));
+        assertThat(principal.get()).isEqualTo("moderator");
+    }
+
+    @Test
+    @WithMockUser(username = "moderator", roles = {"MODERATOR"})
+    void matchingCachedETagIsAnsweredWithoutTheApiExecutor() throws Exception {
+        UUID id = UUID.randomUUID();
+        doReturn(completedFuture(createUserRepresentation())).when(identityWorker).getUserById(id);
+        doReturn(completedFuture(List.of())).when(identityWorker).getUserRoles(id);
+        doReturn(completedFuture(List.of())).when(identityWorker).getUserGroups(id);
+        MvcResult first = mvc.perform(get("/api/users/{id}", id)).andReturn();
+        String etag = mvc.perform(asyncDispatch(first)).andReturn().getResponse().getHeader("ETag");
+        long submittedTasks = apiExecutor.getThreadPoolExecutor().getTaskCount();
+
+        MvcResult result = mvc.perform(get("/api/users/{id}", id).header("If-None-Match", etag)).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().is(304));
+        assertThat(apiExecutor.getThreadPoolExecutor().getTaskCount()).isEqualTo(submittedTasks);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"USER"})
+    void securedIsEnforcedBeforeGoingAsync() throws Exception {
+        mvc.perform(get("/api/users/{id}", UUID.randomUUID()))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().is(403));
+    }
+
+    @Test
+    @WithMockUser(username = "moderator", roles = {"MODERATOR"})
+    void helloStaysAvailableWhileExecutorIsSaturated() throws Exception {
+        blockUserLookups();
+        mvc.perform(get("/api/users/{id}", UUID.randomUUID())).andExpect(request().asyncStarted());
+        awaitWorkerBusy();
+        mvc.perform(get("/api/users/{id}", UUID.randomUUID())).andExpect(request().asyncStarted());
+
+        mvc.perform(get("/api/users/hello"))
+                .andExpect(status().is(200))
+                .andExpect(content().string("moderator"));
+    }
+
+    @Test
+    @WithMockUser(username = "moderator", roles = {"MODERATOR"})
+    void requestsBeyondQueueCapacityAreShedWith503() throws Exception {
+        blockUserLookups();
+        // one request occupies the only worker, the next one fills the queue
+        mvc.perform(get("/api/users/{id}", UUID.randomUUID())).andExpect(request().asyncStarted());
+        awaitWorkerBusy();
+        mvc.perform(get("/api/users/{id}", UUID.randomUUID())).andExpect(request().asyncStarted());
+
+        mvc.perform(get("/api/users/{id}", UUID.randomUUID()))
+                .andExpect(status().is(503));
+    }
+
+    @Test
+    @WithMockUser(username = "moderator", roles = {"MODERATOR"})
+    void timedOutRequestReturns504() throws Exception {
+        blockUserLookups();
+        MvcResult result = mvc.perform(get("/api/users/{id}", UUID.randomUUID()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // MockMvc never fires async timeouts on its own
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().is(504));
+    }
+
+    @Test
+    @WithMockUser(username = "moderator", roles = {"MODERATOR"})
+    void batchIsStreamedFromTheApiExecutor() throws Exception {
+        // completed only once perform() returned, so the body is not written while MockMvc prints the response
+        CompletableFuture<String> created = new CompletableFuture<>();
+        doReturn(created).when(identityWorker).createUser(any());
+        String body = objectMapper.writeValueAsString(
+                new UserRequest("username", "email@example.com", "password", "firstName", "lastName")) + "\n";
+
+        MvcResult result = mvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        created.complete("id-1");
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().is(200))
+                .andExpect(content().string("{\"index\":0,\"id\":\"id-1\"}\n"));
+    }
+
+    @Test
+    @WithMockUser(username = "moderator", roles = {"MODERATOR"})
+    void listingIsStreamedAndRejectsInvalidCursor() throws Exception {
+        // completed only once perform() returned, so the body is not written while MockMvc prints the response
+        CompletableFuture<List<UserRepresentation>> users = new CompletableFuture<>();
+        doReturn(users).when(identityWorker).listUsers(null, 0, 1);
+
+        MvcResult result = mvc.perform(get("/api/users").param("size", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        users.complete(List.of(createUserRepresentation()));
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users[0].firstName").value("John"))
+                .andExpect(jsonPath("$.nextCursor").exists());
+
+        MvcResult invalid = mvc.perform(get("/api/users").param("cursor", "not-a-cursor"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(invalid))
+                .andExpect(status().is(400));
+    }
+
+    private void blockUserLookups() {
+        // blocks the calling apiExecutor thread, as a slow lookup through the admin client would
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return completedFuture(createUserRepresentation());
+        }).when(identityWorker).getUserById(any());
+        doReturn(completedFuture(List.of())).when(identityWorker).getUserRoles(any());
+        doReturn(completedFuture(List.of())).when(identityWorker).getUserGroups(any());
+    }
+
+    private void awaitWorkerBusy() throws InterruptedException {
+        // an idle worker takes the first request from the queue only after it was offered; until then the queue is full
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((apiExecutor.getActiveCount() == 0 || !apiExecutor.getThreadPoolExecutor().getQueue().isEmpty())
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private UserRepresentation createUserRepresentation() throws Exception {
+        return JsonUtil.getObjectFromJson("json/userRepresentation_correct.json", UserRepresentation.class);
+    }
+}
@@ -13,7 +13,8 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 
-@SpringBootTest
+// the search index loads users in the background; tests that need it switch it back on
+@SpringBootTest(properties = "keycloak.search-index.enabled=false")
 @AutoConfigureMockMvc
 public abstract class BaseIntegrationTest {
 
@@ -0,0 +1,110 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.configuration.CacheConfiguration;
+import com.itm.space.backendresources.worker.IdentityWorker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.mockito.Answers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureObservability
+@TestPropertySource(properties = "management.server.port=${server.port}")
+public class IdentityWorkerCacheIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private IdentityWorker identityWorker;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean(answer = Answers.RETURNS_DEEP_STUBS)
+    private Keycloak keycloak;
+
+    @Value("${keycloak.realm}")
+    private String realm;
+
+    private final UUID id = UUID.randomUUID();
+    private UserResource userResource;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        userResource = mock(UserResource.class, Answers.RETURNS_DEEP_STUBS);
+        when(keycloak.realm(realm).users().get(id.toString())).thenReturn(userResource);
+        when(userResource.toRepresentation()).thenReturn(new UserRepresentation());
+    }
+
+    @Test
+    void repeatedLookupIsServedFromCache() {
+        identityWorker.getUserById(id).join();
+        identityWorker.getUserById(id).join();
+
+        verify(userResource, times(1)).toRepresentation();
+        assertThat(cacheManager.getCache(CacheConfiguration.USERS_CACHE).get(id)).isNotNull();
+    }
+
+    @Test
+    void createUserEvictsCachedEntries() {
+        identityWorker.getUserById(id).join();
+        Response response = mock(Response.class);
+        when(response.getStatusInfo()).thenReturn(Response.Status.CREATED);
+        when(response.getLocation()).thenReturn(URI.create("http://keycloak/admin/realms/ITM/users/" + id));
+        when(keycloak.realm(realm).users().create(any())).thenReturn(response);
+
+        identityWorker.createUser(new UserRepresentation()).join();
+        identityWorker.getUserById(id).join();
+
+        verify(userResource, times(2)).toRepresentation();
+    }
+
+    @Test
+    void keycloakCallsAreTimedAndScrapeable() throws Exception {
+        identityWorker.getUserById(id).join();
+
+        mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().is(200))
+                .andExpect(content().string(containsString(
+                        "keycloak_requests_seconds_count{operation=\"getUserById\",outcome=\"success\",}")));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = "MODERATOR")
+    void cachesCanBeFlushedThroughActuator() throws Exception {
+        identityWorker.getUserById(id).join();
+
+        mvc.perform(delete("/actuator/caches"))
+                .andExpect(status().is(204));
+
+        assertThat(cacheManager.getCache(CacheConfiguration.USERS_CACHE).get(id)).isNull();
+    }
+
+    @Test
+    void flushingCachesRequiresAuthentication() throws Exception {
+        mvc.perform(delete("/actuator/caches"))
+                .andExpect(status().is(401));
+    }
+}
@@ -0,0 +1,106 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.worker.IdentityCache;
+import com.itm.space.backendresources.worker.IdentityWorker;
+import com.itm.space.backendresources.worker.KeycloakAdminClientIdentityWorker;
+import com.itm.space.backendresources.worker.KeycloakRequestMetrics;
+import com.itm.space.backendresources.worker.KeycloakResilience;
+import com.itm.space.backendresources.worker.KeycloakTokenManager;
+import com.itm.space.backendresources.worker.WebClientIdentityWorker;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Side-by-side throughput of the blocking admin-client worker and the WebClient worker: {@value #CONCURRENCY}
+ * lookups are kept outstanding against a stand-in Keycloak with a fixed response delay. Caching is disabled
+ * so every lookup reaches Keycloak. Run with {@code mvn test -Pload-test}.
+ */
+@Slf4j
+@Tag("load")
+@TestPropertySource(properties = "keycloak.worker=webclient")
+public class IdentityWorkerThroughputLoadTest extends BaseIntegrationTest {
+    private static final int CONCURRENCY = 128;
+    private static final int REQUESTS = 1024;
+
+    private static final KeycloakStandIn keycloakStandIn = KeycloakStandIn.start();
+
+    @Autowired
+    @Qualifier("keycloakWebClient")
+    private WebClient keycloakWebClient;
+    @Autowired
+    private Keycloak keycloak;
+    @Autowired
+    private KeycloakTokenManager keycloakTokenManager;
+    @Autowired
+    private KeycloakRequestMetrics metrics;
+    @Autowired
+    private KeycloakResilience resilience;
+    @Autowired
+    @Qualifier("keycloakExecutor")
+    private ThreadPoolTaskExecutor keycloakExecutor;
+
+    @Value("${keycloak.realm}")
+    private String realm;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        keycloakStandIn.setLatency(Duration.ofMillis(200));
+        registry.add("keycloak.auth-server-url", keycloakStandIn::getServerUrl);
+    }
+
+    @AfterAll
+    static void stopKeycloakStandIn() {
+        keycloakStandIn.close();
+    }
+
+    @Test
+    void webClientWorkerServesMoreConcurrentLookups() throws Exception {
+        IdentityCache noCache = new IdentityCache(new NoOpCacheManager());
+        KeycloakAdminClientIdentityWorker adminClientWorker =
+                new KeycloakAdminClientIdentityWorker(keycloak, metrics, resilience, noCache, keycloakExecutor);
+        ReflectionTestUtils.setField(adminClientWorker, "realm", realm);
+        WebClientIdentityWorker webClientWorker = new WebClientIdentityWorker(keycloakWebClient, keycloakTokenManager, metrics, resilience, noCache);
+
+        measureThroughput(adminClientWorker);
+        measureThroughput(webClientWorker);
+        double adminClient = measureThroughput(adminClientWorker);
+        double webClient = measureThroughput(webClientWorker);
+        log.info("IdentityWorker throughput at {} outstanding lookups: admin-client {} req/s, webclient {} req/s",
+                CONCURRENCY, adminClient, webClient);
+        assertThat(webClient).isGreaterThan(adminClient);
+    }
+
+    private double measureThroughput(IdentityWorker worker) throws Exception {
+        Semaphore outstanding = new Semaphore(CONCURRENCY);
+        CompletableFuture<?>[] lookups = new CompletableFuture<?>[REQUESTS];
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            outstanding.acquire();
+            lookups[i] = worker.getUserById(UUID.randomUUID()).whenComplete((user, ex) -> outstanding.release());
+        }
+        CompletableFuture.allOf(lookups).get(2, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return REQUESTS / seconds;
+    }
+}
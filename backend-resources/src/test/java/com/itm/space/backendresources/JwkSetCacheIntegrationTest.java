@@ -0,0 +1,83 @@
+package com.itm.space.backendresources;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class JwkSetCacheIntegrationTest extends BaseIntegrationTest {
+    private static final KeycloakStandIn keycloakStandIn = KeycloakStandIn.start();
+    private static final Path cacheFile = tempDirectory().resolve("keys").resolve("jwks.json");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void issuerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", keycloakStandIn::getIssuerUri);
+        registry.add("security.jwks.cache-file", cacheFile::toString);
+        registry.add("security.jwks.min-refresh-interval", () -> "0s");
+    }
+
+    @AfterAll
+    static void stopKeycloakStandIn() {
+        keycloakStandIn.close();
+    }
+
+    @Test
+    void fetchedKeysArePersisted() throws Exception {
+        mvc.perform(get("/api/users/hello").header("Authorization", "Bearer " + keycloakStandIn.issueAccessToken("MODERATOR")))
+                .andExpect(status().is(200));
+
+        assertThat(cacheFile).exists();
+        assertThat(Files.readString(cacheFile)).isEqualTo(keycloakStandIn.getJwkSetJson());
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(cacheFile.getParent())))
+                .isEqualTo("rwx------");
+        assertThat(meterRegistry.get("security.jwks.age").gauge().value()).isNotNaN();
+    }
+
+    @Test
+    void unknownKidTriggersRefresh() throws Exception {
+        mvc.perform(get("/api/users/hello").header("Authorization", "Bearer " + keycloakStandIn.issueAccessToken("MODERATOR")))
+                .andExpect(status().is(200));
+        long jwksRequestsBefore = keycloakStandIn.getJwksRequests();
+
+        keycloakStandIn.rotateSigningKey();
+        mvc.perform(get("/api/users/hello").header("Authorization", "Bearer " + keycloakStandIn.issueAccessToken("MODERATOR")))
+                .andExpect(status().is(200));
+
+        assertThat(keycloakStandIn.getJwksRequests()).isGreaterThan(jwksRequestsBefore);
+        assertThat(meterRegistry.get("security.jwks.refresh").tag("trigger", "unknown_kid").tag("outcome", "success")
+                .counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void tokenMustUseAnAlgorithmOfItsKey() throws Exception {
+        mvc.perform(get("/api/users/hello").header("Authorization",
+                        "Bearer " + keycloakStandIn.issueAccessToken(JWSAlgorithm.RS256, "MODERATOR")))
+                .andExpect(status().is(200));
+        mvc.perform(get("/api/users/hello").header("Authorization",
+                        "Bearer " + keycloakStandIn.issueAccessToken(JWSAlgorithm.RS512, "MODERATOR")))
+                .andExpect(status().is(401));
+    }
+
+    static Path tempDirectory() {
+        try {
+            return Files.createTempDirectory("jwks");
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
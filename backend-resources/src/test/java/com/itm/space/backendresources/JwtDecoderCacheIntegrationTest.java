@@ -0,0 +1,68 @@
+package com.itm.space.backendresources;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class JwtDecoderCacheIntegrationTest extends BaseIntegrationTest {
+    private static final KeycloakStandIn keycloakStandIn = KeycloakStandIn.start();
+
+    @Autowired
+    private JwtDecoder jwtDecoder;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void issuerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", keycloakStandIn::getIssuerUri);
+    }
+
+    @AfterAll
+    static void stopKeycloakStandIn() {
+        keycloakStandIn.close();
+    }
+
+    @Test
+    void repeatedTokenIsDecodedOnce() throws Exception {
+        String token = keycloakStandIn.issueAccessToken("MODERATOR");
+        double hitsBefore = tokenCacheGets("hit");
+
+        for (int i = 0; i < 3; i++) {
+            mvc.perform(get("/api/users/hello").header("Authorization", "Bearer " + token))
+                    .andExpect(status().is(200));
+        }
+
+        assertThat(tokenCacheGets("hit") - hitsBefore).isEqualTo(2);
+    }
+
+    @Test
+    void decodedTokenInstanceIsReused() {
+        String token = keycloakStandIn.issueAccessToken("MODERATOR");
+
+        assertThat(jwtDecoder.decode(token)).isSameAs(jwtDecoder.decode(token));
+    }
+
+    @Test
+    void tokenSignedWithUnknownKeyIsRejected() throws Exception {
+        String forged;
+        try (KeycloakStandIn otherKeycloak = KeycloakStandIn.start()) {
+            forged = otherKeycloak.issueAccessToken("MODERATOR");
+        }
+
+        mvc.perform(get("/api/users/hello").header("Authorization", "Bearer " + forged))
+                .andExpect(status().is(401));
+    }
+
+    private double tokenCacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "jwt-tokens").tag("result", result)
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,99 @@
+package com.itm.space.backendresources;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.keycloak.OAuth2Constants.CLIENT_CREDENTIALS;
+
+/**
+ * Compares the pooled Keycloak admin client against the {@link KeycloakBuilder} defaults
+ * (10 pooled connections) on a stand-in Keycloak with a fixed response delay.
+ * Run with {@code mvn test -Pload-test}.
+ */
+@Slf4j
+@Tag("load")
+public class KeycloakConnectionPoolLoadTest extends BaseIntegrationTest {
+    private static final int THREADS = 32;
+    private static final int REQUESTS_PER_THREAD = 5;
+    private static final String USER_ID = UUID.randomUUID().toString();
+
+    private static final KeycloakStandIn keycloakStandIn = KeycloakStandIn.start();
+
+    @Autowired
+    private Keycloak keycloak;
+
+    @Value("${keycloak.realm}")
+    private String realm;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        keycloakStandIn.setLatency(Duration.ofMillis(200));
+        registry.add("keycloak.auth-server-url", keycloakStandIn::getServerUrl);
+    }
+
+    @AfterAll
+    static void stopKeycloakStandIn() {
+        keycloakStandIn.close();
+    }
+
+    @Test
+    void pooledClientHasHigherThroughputThanDefaultClient() throws Exception {
+        Keycloak defaultClient = KeycloakBuilder.builder()
+                .serverUrl(keycloakStandIn.getServerUrl())
+                .realm(realm)
+                .grantType(CLIENT_CREDENTIALS)
+                .clientId("backend-resources")
+                .clientSecret("secret")
+                .build();
+        try {
+            measureThroughput(keycloak);
+            measureThroughput(defaultClient);
+            double pooled = measureThroughput(keycloak);
+            double defaults = measureThroughput(defaultClient);
+            log.info("Keycloak admin client throughput: pooled {} req/s, default {} req/s", pooled, defaults);
+            assertThat(pooled).isGreaterThan(defaults);
+        } finally {
+            defaultClient.close();
+        }
+    }
+
+    private double measureThroughput(Keycloak client) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(callers.submit(() -> {
+                    for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+                        client.realm(realm).users().get(USER_ID).toRepresentation();
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(2, TimeUnit.MINUTES);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return THREADS * REQUESTS_PER_THREAD / seconds;
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
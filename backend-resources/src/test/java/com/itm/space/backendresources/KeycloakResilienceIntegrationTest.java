@@ -0,0 +1,95 @@
+package com.itm.space.backendresources;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {
+        "keycloak.circuit-breaker.sliding-window-size=4",
+        "keycloak.circuit-breaker.minimum-number-of-calls=4",
+        "keycloak.circuit-breaker.wait-duration-in-open-state=30s",
+        "keycloak.cache.users.ttl=0s",
+        "keycloak.cache.roles.ttl=0s",
+        "keycloak.cache.groups.ttl=0s"
+})
+public class KeycloakResilienceIntegrationTest extends BaseIntegrationTest {
+    private static final KeycloakStandIn keycloakStandIn = KeycloakStandIn.start();
+
+    @Autowired
+    private CircuitBreakerRegistry keycloakCircuitBreakers;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.auth-server-url", keycloakStandIn::getServerUrl);
+    }
+
+    @AfterEach
+    void recoverKeycloak() {
+        keycloakStandIn.setErrorRate(0);
+        keycloakCircuitBreakers.getAllCircuitBreakers().forEach(CircuitBreaker::reset);
+    }
+
+    @AfterAll
+    static void stopKeycloakStandIn() {
+        keycloakStandIn.close();
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void openCircuitFailsFastWithRetryAfter() throws Exception {
+        keycloakStandIn.setErrorRate(1.0);
+        for (int i = 0; i < 4; i++) {
+            mvc.perform(get("/api/users/{id}", UUID.randomUUID())).andExpect(status().is5xxServerError());
+        }
+        long adminRequestsBefore = keycloakStandIn.getAdminRequests();
+
+        mvc.perform(get("/api/users/{id}", UUID.randomUUID()))
+                .andExpect(status().is(503))
+                .andExpect(header().string("Retry-After", "30"));
+
+        assertThat(keycloakStandIn.getAdminRequests()).isEqualTo(adminRequestsBefore);
+        assertThat(keycloakCircuitBreakers.circuitBreaker("getUserById").getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(meterRegistry.get("keycloak.circuit.transitions")
+                .tag("operation", "getUserById").tag("from", "CLOSED").tag("to", "OPEN")
+                .counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void lastKnownUserIsServedWhileKeycloakFails() throws Exception {
+        UUID id = UUID.randomUUID();
+        mvc.perform(get("/api/users/{id}", id))
+                .andExpect(status().is(200))
+                .andExpect(header().doesNotExist("Warning"));
+
+        keycloakStandIn.setErrorRate(1.0);
+
+        mvc.perform(get("/api/users/{id}", id))
+                .andExpect(status().is(200))
+                .andExpect(header().string("Warning", "110 - \"Response is Stale\""))
+                .andExpect(header().exists("Age"))
+                .andExpect(jsonPath("$.email").value("johndoe@gmail.com"));
+        mvc.perform(get("/api/users").param("ids", id.toString()))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users['" + id + "'].email").value("johndoe@gmail.com"))
+                .andExpect(jsonPath("$.stale['" + id + "']").exists());
+    }
+}
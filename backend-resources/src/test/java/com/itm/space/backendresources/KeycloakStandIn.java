@@ -0,0 +1,372 @@
+package com.itm.space.backendresources;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Minimal in-process stand-in for Keycloak: the client-credentials token endpoint and admin endpoints used by
+ * {@code IdentityWorker}, plus OIDC discovery and JWKS for the resource server. {@link #issueAccessToken(String...)}
+ * mints access tokens signed with the stand-in's key.
+ * Admin calls can be slowed down with {@link #setLatency(Duration)} and failed with {@link #setErrorRate(double)};
+ * they are answered with 401 unless they carry a token from the token endpoint that has not been revoked.
+ * The user listing serves {@link #setUserCount(int)} generated users, {@code user00001} to {@code userNNNNN}, which
+ * can also be looked up by {@link #userId(String)}; changing them with {@link #deleteUser(String)} or
+ * {@link #updateEmail(String, String)} records an admin event. Any other id is answered with user {@code john}.
+ */
+public class KeycloakStandIn implements AutoCloseable {
+    private static final Pattern USER_PATH = Pattern.compile("/auth/admin/realms/[^/]+/users/([^/]+)(/.*)?");
+    private static final String REALM = "ITM";
+
+    private final HttpServer server;
+    private volatile RSAKey signingKey;
+    private final ExecutorService workers = Executors.newCachedThreadPool();
+    private final AtomicLong tokenRequests = new AtomicLong();
+    private final AtomicLong adminRequests = new AtomicLong();
+    private final AtomicLong jwksRequests = new AtomicLong();
+    private final Set<String> validTokens = ConcurrentHashMap.newKeySet();
+    private volatile Duration tokenLifetime = Duration.ofMinutes(5);
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration realmLatency = Duration.ZERO;
+    private volatile double errorRate;
+    private volatile int userCount;
+    private final Set<String> deletedUsers = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> emails = new ConcurrentHashMap<>();
+    private final List<String> adminEvents = new CopyOnWriteArrayList<>();
+
+    private KeycloakStandIn(HttpServer server) {
+        this.server = server;
+        this.signingKey = generateSigningKey();
+        server.createContext("/auth/realms/", this::handleRealm);
+        server.createContext("/auth/admin/realms/", this::handleAdmin);
+        server.setExecutor(workers);
+        server.start();
+    }
+
+    public static KeycloakStandIn start() {
+        try {
+            return new KeycloakStandIn(HttpServer.create(new InetSocketAddress("localhost", 0), 1024));
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public String getServerUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/auth";
+    }
+
+    public String getIssuerUri() {
+        return getServerUrl() + "/realms/" + REALM;
+    }
+
+    public String issueAccessToken(String... realmRoles) {
+        return issueAccessToken(JWSAlgorithm.RS256, realmRoles);
+    }
+
+    /**
+     * A token signed with {@code algorithm}; the signing key declares RS256, as Keycloak's keys declare theirs.
+     */
+    public String issueAccessToken(JWSAlgorithm algorithm, String... realmRoles) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(getIssuerUri())
+                .subject(UUID.randomUUID().toString())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(Duration.ofHours(1))))
+                .claim("preferred_username", "load-test")
+                .claim("realm_access", Map.of("roles", List.of(realmRoles)))
+                .build();
+        try {
+            SignedJWT jwt = new SignedJWT(
+                    new JWSHeader.Builder(algorithm).keyID(signingKey.getKeyID()).build(), claims);
+            jwt.sign(new RSASSASigner(signingKey));
+            return jwt.serialize();
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public String getJwkSetJson() {
+        return new JWKSet(signingKey.toPublicJWK()).toString();
+    }
+
+    /**
+     * Replaces the signing key; tokens issued afterwards carry a {@code kid} the resource server has not seen yet.
+     */
+    public void rotateSigningKey() {
+        signingKey = generateSigningKey();
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Delays the realm endpoints (token, discovery, JWKS), e.g. to simulate a slow Keycloak at startup.
+     */
+    public void setRealmLatency(Duration realmLatency) {
+        this.realmLatency = realmLatency;
+    }
+
+    public void setTokenLifetime(Duration tokenLifetime) {
+        this.tokenLifetime = tokenLifetime;
+    }
+
+    /**
+     * Rejects every client-credentials token issued so far, as after a Keycloak restart.
+     */
+    public void revokeTokens() {
+        validTokens.clear();
+    }
+
+    public void setUserCount(int userCount) {
+        this.userCount = userCount;
+    }
+
+    public static String userId(String username) {
+        return UUID.nameUUIDFromBytes(username.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    public void deleteUser(String username) {
+        deletedUsers.add(username);
+        recordAdminEvent("DELETE", username);
+    }
+
+    public void updateEmail(String username, String email) {
+        emails.put(username, email);
+        recordAdminEvent("UPDATE", username);
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public long getTokenRequests() {
+        return tokenRequests.get();
+    }
+
+    public long getAdminRequests() {
+        return adminRequests.get();
+    }
+
+    public long getJwksRequests() {
+        return jwksRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    private void handleRealm(HttpExchange exchange) throws IOException {
+        drain(exchange);
+        sleep(realmLatency);
+        String path = exchange.getRequestURI().getPath();
+        if (path.endsWith("/protocol/openid-connect/token")) {
+            String token = "stand-in-token-" + tokenRequests.incrementAndGet();
+            validTokens.add(token);
+            respond(exchange, 200, "{\"access_token\":\"" + token + "\",\"expires_in\":" + tokenLifetime.toSeconds()
+                    + ",\"token_type\":\"Bearer\"}");
+        } else if (path.endsWith("/.well-known/openid-configuration")) {
+            respond(exchange, 200, "{\"issuer\":\"" + getIssuerUri() + "\","
+                    + "\"jwks_uri\":\"" + getIssuerUri() + "/protocol/openid-connect/certs\","
+                    + "\"token_endpoint\":\"" + getIssuerUri() + "/protocol/openid-connect/token\","
+                    + "\"authorization_endpoint\":\"" + getIssuerUri() + "/protocol/openid-connect/auth\","
+                    + "\"subject_types_supported\":[\"public\"],"
+                    + "\"id_token_signing_alg_values_supported\":[\"RS256\"]}");
+        } else if (path.endsWith("/protocol/openid-connect/certs")) {
+            jwksRequests.incrementAndGet();
+            respond(exchange, 200, getJwkSetJson());
+        } else {
+            respond(exchange, 404, "{\"error\":\"not found\"}");
+        }
+    }
+
+    private void handleAdmin(HttpExchange exchange) throws IOException {
+        adminRequests.incrementAndGet();
+        drain(exchange);
+        sleep(latency);
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")
+                || !validTokens.contains(authorization.substring("Bearer ".length()))) {
+            respond(exchange, 401, "{\"error\":\"HTTP 401 Unauthorized\"}");
+            return;
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            respond(exchange, 503, "{\"error\":\"injected\"}");
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        if ("POST".equals(exchange.getRequestMethod()) && path.endsWith("/users")) {
+            exchange.getResponseHeaders().add("Location", "http://localhost" + path + "/" + UUID.randomUUID());
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+            return;
+        }
+        if ("GET".equals(exchange.getRequestMethod()) && path.endsWith("/users")) {
+            respond(exchange, 200, listUsers(queryParameters(exchange)));
+            return;
+        }
+        if ("GET".equals(exchange.getRequestMethod()) && path.endsWith("/admin-events")) {
+            respond(exchange, 200, listAdminEvents(queryParameters(exchange)));
+            return;
+        }
+        Matcher matcher = USER_PATH.matcher(path);
+        if (!matcher.matches()) {
+            respond(exchange, 404, "{\"error\":\"not found\"}");
+            return;
+        }
+        String suffix = matcher.group(2);
+        String generatedUser = generatedUsername(matcher.group(1));
+        if (generatedUser != null && deletedUsers.contains(generatedUser)) {
+            respond(exchange, 404, "{\"error\":\"User not found\"}");
+        } else if (suffix == null && generatedUser != null) {
+            respond(exchange, 200, userJson(generatedUser));
+        } else if (suffix == null) {
+            respond(exchange, 200, "{\"id\":\"" + matcher.group(1) + "\",\"username\":\"john\","
+                    + "\"firstName\":\"John\",\"lastName\":\"Doe\",\"email\":\"johndoe@gmail.com\"}");
+        } else if (suffix.equals("/role-mappings")) {
+            respond(exchange, 200, "{\"realmMappings\":[{\"name\":\"MODERATOR\"},{\"name\":\"offline_access\"}]}");
+        } else if (suffix.equals("/groups")) {
+            respond(exchange, 200, "[{\"name\":\"Moderators\",\"path\":\"/Moderators\"}]");
+        } else {
+            respond(exchange, 404, "{\"error\":\"not found\"}");
+        }
+    }
+
+    /**
+     * Keycloak's {@code search} semantics as far as the service uses them: a trailing {@code *} makes the search a
+     * prefix match on username or email.
+     */
+    private String listUsers(Map<String, String> query) {
+        String search = query.get("search");
+        String prefix = search == null ? "" : search.replace("*", "");
+        int first = Integer.parseInt(query.getOrDefault("first", "0"));
+        int max = Integer.parseInt(query.getOrDefault("max", "100"));
+        String users = IntStream.rangeClosed(1, userCount)
+                .mapToObj(i -> String.format("user%05d", i))
+                .filter(username -> !deletedUsers.contains(username))
+                .filter(username -> username.startsWith(prefix) || email(username).startsWith(prefix))
+                .skip(first)
+                .limit(max)
+                .map(this::userJson)
+                .collect(Collectors.joining(","));
+        return "[" + users + "]";
+    }
+
+    private String listAdminEvents(Map<String, String> query) {
+        int first = Integer.parseInt(query.getOrDefault("first", "0"));
+        int max = Integer.parseInt(query.getOrDefault("max", "100"));
+        List<String> newestFirst = new ArrayList<>(adminEvents);
+        Collections.reverse(newestFirst);
+        return newestFirst.stream().skip(first).limit(max).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private void recordAdminEvent(String operationType, String username) {
+        adminEvents.add("{\"time\":" + System.currentTimeMillis() + ",\"realmId\":\"" + REALM + "\","
+                + "\"operationType\":\"" + operationType + "\",\"resourceType\":\"USER\","
+                + "\"resourcePath\":\"users/" + userId(username) + "\"}");
+    }
+
+    private String generatedUsername(String id) {
+        return IntStream.rangeClosed(1, userCount)
+                .mapToObj(i -> String.format("user%05d", i))
+                .filter(username -> userId(username).equals(id))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private String userJson(String username) {
+        return "{\"id\":\"" + userId(username) + "\",\"username\":\"" + username + "\","
+                + "\"firstName\":\"John\",\"lastName\":\"Doe\",\"email\":\"" + email(username) + "\"}";
+    }
+
+    private String email(String username) {
+        return emails.getOrDefault(username, username + "@example.com");
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return Map.of();
+        }
+        return Arrays.stream(query.split("&"))
+                .map(parameter -> parameter.split("=", 2))
+                .collect(Collectors.toMap(parameter -> parameter[0],
+                        parameter -> parameter.length > 1 ? URLDecoder.decode(parameter[1], StandardCharsets.UTF_8) : "",
+                        (a, b) -> b));
+    }
+
+    private static RSAKey generateSigningKey() {
+        try {
+            return new RSAKeyGenerator(2048)
+                    .keyID(UUID.randomUUID().toString())
+                    .algorithm(JWSAlgorithm.RS256)
+                    .generate();
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
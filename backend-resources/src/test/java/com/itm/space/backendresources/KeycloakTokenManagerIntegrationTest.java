@@ -0,0 +1,94 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.worker.IdentityWorker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class KeycloakTokenManagerIntegrationTest extends BaseIntegrationTest {
+    private static final KeycloakStandIn keycloakStandIn = KeycloakStandIn.start();
+
+    static {
+        keycloakStandIn.setTokenLifetime(Duration.ofSeconds(2));
+    }
+
+    @Autowired
+    private IdentityWorker identityWorker;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.auth-server-url", keycloakStandIn::getServerUrl);
+        registry.add("keycloak.token.refresh-at", () -> "0.5");
+        registry.add("keycloak.token.min-validity", () -> "0s");
+    }
+
+    @AfterAll
+    static void stopKeycloakStandIn() {
+        keycloakStandIn.close();
+    }
+
+    @Test
+    @Order(1)
+    void tokenIsRefreshedAheadOfExpiry() throws InterruptedException {
+        long tokenRequestsBefore = keycloakStandIn.getTokenRequests();
+        long requestRefreshesBefore = requestRefreshes();
+
+        awaitTokenRequests(tokenRequestsBefore + 2);
+
+        assertThat(keycloakStandIn.getTokenRequests() - tokenRequestsBefore).isGreaterThanOrEqualTo(2);
+        assertThat(identityWorker.getUserById(UUID.randomUUID()).join().getUsername()).isEqualTo("john");
+        assertThat(meterRegistry.get("keycloak.token.refresh").tag("trigger", "scheduled").tag("outcome", "success")
+                .timer().count()).isGreaterThanOrEqualTo(1);
+        assertThat(requestRefreshes()).isEqualTo(requestRefreshesBefore);
+    }
+
+    @Test
+    @Order(2)
+    void rejectedTokenIsReplacedOnNextCall() throws InterruptedException {
+        // switch to a long-lived token first, so no scheduled refresh replaces the revoked one behind our back
+        keycloakStandIn.setTokenLifetime(Duration.ofMinutes(5));
+        awaitTokenRequests(keycloakStandIn.getTokenRequests() + 1);
+        identityWorker.getUserById(UUID.randomUUID()).join();
+        long tokenRequestsBefore = keycloakStandIn.getTokenRequests();
+
+        keycloakStandIn.revokeTokens();
+
+        assertThatThrownBy(() -> identityWorker.getUserById(UUID.randomUUID()).join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOfSatisfying(WebApplicationException.class,
+                        ex -> assertThat(ex.getResponse().getStatus()).isEqualTo(401));
+        assertThat(identityWorker.getUserById(UUID.randomUUID()).join().getUsername()).isEqualTo("john");
+        assertThat(keycloakStandIn.getTokenRequests()).isGreaterThan(tokenRequestsBefore);
+    }
+
+    private static void awaitTokenRequests(long tokenRequests) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (keycloakStandIn.getTokenRequests() < tokenRequests && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private long requestRefreshes() {
+        Timer timer = meterRegistry.find("keycloak.token.refresh").tag("trigger", "request").timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
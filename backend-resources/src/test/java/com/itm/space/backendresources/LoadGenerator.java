@@ -0,0 +1,78 @@
+package com.itm.space.backendresources;
+
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * Open-loop HTTP load generator: requests are started on a fixed schedule regardless of how long earlier
+ * ones take, and latency is measured from the scheduled start so queueing is not hidden (no coordinated omission).
+ */
+public class LoadGenerator {
+    private final HttpClient httpClient;
+
+    public LoadGenerator(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    public Result run(String name, int ratePerSecond, Duration duration, LongFunction<HttpRequest> requests) {
+        Histogram latencies = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+        AtomicLong errors = new AtomicLong();
+        long total = ratePerSecond * duration.toSeconds();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        CompletableFuture<?>[] inFlight = new CompletableFuture<?>[(int) total];
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long scheduledAt = start + i * intervalNanos;
+            long wait = scheduledAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight[(int) i] = httpClient.sendAsync(requests.apply(i), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        long latency = System.nanoTime() - scheduledAt;
+                        synchronized (latencies) {
+                            latencies.recordValue(Math.min(latency, latencies.getHighestTrackableValue()));
+                        }
+                        if (ex != null || response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    });
+        }
+        CompletableFuture.allOf(inFlight).handle((ignored, ex) -> null).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        synchronized (latencies) {
+            return new Result(name, total, errors.get(), total / seconds,
+                    millis(latencies.getValueAtPercentile(50)),
+                    millis(latencies.getValueAtPercentile(99)),
+                    millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMaxValue()));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    public record Result(String name, long requests, long errors, double throughput,
+                         double p50Millis, double p99Millis, double p999Millis, double maxMillis) {
+
+        public double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d requests, %d errors, %.1f req/s, p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms",
+                    name, requests, errors, throughput, p50Millis, p99Millis, p999Millis, maxMillis);
+        }
+    }
+}
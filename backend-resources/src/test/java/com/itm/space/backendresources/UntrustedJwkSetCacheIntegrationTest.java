@@ -0,0 +1,45 @@
+package com.itm.space.backendresources;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Starts with Keycloak unreachable and a persisted key set that other users could have written, and ignores it.
+ */
+public class UntrustedJwkSetCacheIntegrationTest extends BaseIntegrationTest {
+    private static final Path cacheFile = JwkSetCacheIntegrationTest.tempDirectory().resolve("jwks.json");
+    private static final String issuerUri;
+    private static final String accessToken;
+
+    static {
+        try (KeycloakStandIn keycloakStandIn = KeycloakStandIn.start()) {
+            issuerUri = keycloakStandIn.getIssuerUri();
+            accessToken = keycloakStandIn.issueAccessToken("MODERATOR");
+            Files.writeString(cacheFile, keycloakStandIn.getJwkSetJson());
+            Files.setPosixFilePermissions(cacheFile, PosixFilePermissions.fromString("rw-rw-rw-"));
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @DynamicPropertySource
+    static void issuerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", () -> issuerUri);
+        registry.add("security.jwks.cache-file", cacheFile::toString);
+    }
+
+    @Test
+    void writableByOthersCacheIsIgnored() throws Exception {
+        mvc.perform(get("/api/users/hello").header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().is(401));
+    }
+}
@@ -0,0 +1,109 @@
+package com.itm.space.backendresources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.api.request.UserRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the real backend-resources stack (security, controller, service, Keycloak admin client) against
+ * {@link KeycloakStandIn} and reports throughput and latency percentiles for creating and reading users.
+ * <p>
+ * Run with {@code mvn test -Pload-test}. Tunable through system properties:
+ * {@code load.rate} (requests per second, default 20), {@code load.duration} (seconds, default 10),
+ * {@code load.keycloak-latency} (ms per admin call, default 5), {@code load.keycloak-error-rate} (default 0)
+ * and {@code load.max-error-rate} (share of failed API calls the run tolerates, default 0.01).
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class UserApiLoadTest {
+    private static final int RATE = Integer.getInteger("load.rate", 20);
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("load.duration", 10));
+    private static final Duration KEYCLOAK_LATENCY = Duration.ofMillis(Integer.getInteger("load.keycloak-latency", 5));
+    private static final double KEYCLOAK_ERROR_RATE = Double.parseDouble(System.getProperty("load.keycloak-error-rate", "0"));
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+
+    private static final KeycloakStandIn keycloakStandIn = KeycloakStandIn.start();
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.auth-server-url", keycloakStandIn::getServerUrl);
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", keycloakStandIn::getIssuerUri);
+    }
+
+    @BeforeAll
+    static void configureKeycloakStandIn() {
+        keycloakStandIn.setLatency(KEYCLOAK_LATENCY);
+        keycloakStandIn.setErrorRate(KEYCLOAK_ERROR_RATE);
+    }
+
+    @AfterAll
+    static void stopKeycloakStandIn() {
+        keycloakStandIn.close();
+    }
+
+    @Test
+    void createAndGetUsers() {
+        String token = keycloakStandIn.issueAccessToken("MODERATOR");
+        LoadGenerator loadGenerator = new LoadGenerator(httpClient);
+        // warm up JIT, connection pools and the JWKS cache before measuring
+        loadGenerator.run("warm-up", RATE, Duration.ofSeconds(3), i -> getUser(token));
+
+        LoadGenerator.Result create = loadGenerator.run("POST /api/users", RATE, DURATION, i -> createUser(token, i));
+        LoadGenerator.Result get = loadGenerator.run("GET /api/users/{id}", RATE, DURATION, i -> getUser(token));
+        log.info("{}", create);
+        log.info("{}", get);
+
+        assertThat(create.errorRate()).isLessThanOrEqualTo(MAX_ERROR_RATE);
+        assertThat(get.errorRate()).isLessThanOrEqualTo(MAX_ERROR_RATE);
+    }
+
+    private HttpRequest createUser(String token, long index) {
+        UserRequest userRequest = new UserRequest("user" + index, "user" + index + "@example.com",
+                "password", "John", "Doe");
+        try {
+            return HttpRequest.newBuilder(uri("/api/users"))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(userRequest)))
+                    .build();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private HttpRequest getUser(String token) {
+        return HttpRequest.newBuilder(uri("/api/users/" + UUID.randomUUID()))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -1,9 +1,15 @@
 package com.itm.space.backendresources;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.service.IdempotencyService;
 import com.itm.space.backendresources.util.JsonUtil;
+import com.itm.space.backendresources.worker.IdentityCache;
 import com.itm.space.backendresources.worker.IdentityWorker;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.Test;
 import org.keycloak.representations.idm.GroupRepresentation;
@@ -14,18 +20,41 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -39,6 +68,13 @@ public class UserControllerIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private IdentityCache identityCache;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @MockBean
     private IdentityWorker identityWorker;
 
@@ -47,7 +83,7 @@ public class UserControllerIntegrationTest extends BaseIntegrationTest {
     @WithMockUser(username = "user", roles = {"MODERATOR"})
     public void testCreateUserOk() throws Exception {
         UserRequest userRequest = new UserRequest("username", "email@example.com", "password", "firstName", "lastName");
-        doReturn("userId").when(identityWorker).createUser(any());
+        doReturn(completedFuture("userId")).when(identityWorker).createUser(any());
         //       verify(identityWorker, atLeast(1)).createUser(any());
         //then
         mockMvc.perform(MockMvcRequestBuilders.post("/api/users")
@@ -73,9 +109,9 @@ public class UserControllerIntegrationTest extends BaseIntegrationTest {
         List<GroupRepresentation> groupsRepresentation = createGroupsRepresentation(groupName);
         List<RoleRepresentation> roleRepresentation = createRolesRepresentation(roleName);
 
-        doReturn(roleRepresentation).when(identityWorker).getUserRoles(id);
-        doReturn(groupsRepresentation).when(identityWorker).getUserGroups(id);
-        doReturn(userRepresentation).when(identityWorker).getUserById(id);
+        doReturn(completedFuture(roleRepresentation)).when(identityWorker).getUserRoles(id);
+        doReturn(completedFuture(groupsRepresentation)).when(identityWorker).getUserGroups(id);
+        doReturn(completedFuture(userRepresentation)).when(identityWorker).getUserById(id);
 
 
         //then
@@ -91,6 +127,370 @@ public class UserControllerIntegrationTest extends BaseIntegrationTest {
 
     }
 
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testGetUserByIdRevalidatesFromCachedETag() throws Exception {
+        UUID id = UUID.randomUUID();
+        doReturn(completedFuture(createUserRepresentation())).when(identityWorker).getUserById(id);
+        doReturn(completedFuture(createRolesRepresentation("ROLE_USER"))).when(identityWorker).getUserRoles(id);
+        doReturn(completedFuture(createGroupsRepresentation("GROUP1"))).when(identityWorker).getUserGroups(id);
+
+        String etag = mockMvc.perform(get("/api/users/{id}", id))
+                .andExpect(status().is(200))
+                .andExpect(header().string("Cache-Control", "private, no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).matches("\"[A-Za-z0-9_-]+\"");
+
+        mockMvc.perform(get("/api/users/{id}", id).header("If-None-Match", "\"other\", W/" + etag))
+                .andExpect(status().is(304))
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/users/{id}", id).header("If-None-Match", "\"other\""))
+                .andExpect(status().is(200))
+                .andExpect(header().string("ETag", etag))
+                .andExpect(jsonPath("$.roles[0]").value("ROLE_USER"));
+
+        // the 304 was answered without looking the user up again
+        verify(identityWorker, times(2)).getUserById(id);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testGetUserByIdAsCborHasItsOwnETag() throws Exception {
+        UUID id = UUID.randomUUID();
+        doReturn(completedFuture(createUserRepresentation())).when(identityWorker).getUserById(id);
+        doReturn(completedFuture(createRolesRepresentation("ROLE_USER"))).when(identityWorker).getUserRoles(id);
+        doReturn(completedFuture(createGroupsRepresentation("GROUP1"))).when(identityWorker).getUserGroups(id);
+
+        String jsonETag = mockMvc.perform(get("/api/users/{id}", id))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn().getResponse().getHeader("ETag");
+        MockHttpServletResponse cbor = mockMvc.perform(get("/api/users/{id}", id).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().is(200))
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn().getResponse();
+        String cborETag = cbor.getHeader("ETag");
+        assertThat(cborETag).isNotEqualTo(jsonETag);
+        UserResponse userResponse = CBORMapper.builder().findAndAddModules().build().readValue(cbor.getContentAsByteArray(), UserResponse.class);
+        assertThat(userResponse.getEmail()).isEqualTo("johndoe@gmail.com");
+        assertThat(userResponse.getRoles()).containsExactly("ROLE_USER");
+
+        mockMvc.perform(get("/api/users/{id}", id).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", cborETag))
+                .andExpect(status().is(304))
+                .andExpect(header().string("ETag", cborETag));
+        mockMvc.perform(get("/api/users/{id}", id).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", jsonETag))
+                .andExpect(status().is(200))
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testCreateUserFromSmile() throws Exception {
+        doReturn(completedFuture("userId")).when(identityWorker).createUser(any());
+        UserRequest userRequest = new UserRequest("smile", "smile@example.com", "password", "John", "Doe");
+
+        mockMvc.perform(post("/api/users")
+                        .contentType("application/x-jackson-smile")
+                        .content(new SmileMapper().writeValueAsBytes(userRequest)))
+                .andExpect(status().is(200));
+        verify(identityWorker).createUser(argThat(user -> "smile".equals(user.getUsername())));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testGetUserByIdWithFieldsOnlyMakesTheCallsTheyNeed() throws Exception {
+        UUID id = UUID.randomUUID();
+        doReturn(completedFuture(createUserRepresentation())).when(identityWorker).getUserById(id);
+        doReturn(completedFuture(createRolesRepresentation("ROLE_USER"))).when(identityWorker).getUserRoles(id);
+
+        String contactETag = mockMvc.perform(get("/api/users/{id}", id).param("fields", "firstName,email"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.firstName").value("John"))
+                .andExpect(jsonPath("$.email").value("johndoe@gmail.com"))
+                .andExpect(jsonPath("$.lastName").doesNotExist())
+                .andExpect(jsonPath("$.roles").doesNotExist())
+                .andExpect(jsonPath("$.groups").doesNotExist())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/users/{id}", id).param("fields", "roles"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.roles[0]").value("ROLE_USER"))
+                .andExpect(jsonPath("$.firstName").doesNotExist())
+                .andExpect(header().string("ETag", not(contactETag)));
+        mockMvc.perform(get("/api/users/{id}", id).param("fields", "firstName,email").header("If-None-Match", contactETag))
+                .andExpect(status().is(304));
+
+        verify(identityWorker, times(2)).getUserById(id);
+        verify(identityWorker, times(1)).getUserRoles(id);
+        verify(identityWorker, never()).getUserGroups(id);
+        assertThat(meterRegistry.get("users.lookup.calls").tag("projection", "firstName,email").tag("call", "user")
+                .counter().count()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testGetUserByIdKeepsNullFieldsOfCompleteUsers() throws Exception {
+        UUID id = UUID.randomUUID();
+        UserRepresentation userRepresentation = createUserRepresentation();
+        userRepresentation.setEmail(null);
+        doReturn(completedFuture(userRepresentation)).when(identityWorker).getUserById(id);
+        doReturn(completedFuture(createRolesRepresentation("ROLE_USER"))).when(identityWorker).getUserRoles(id);
+        doReturn(completedFuture(createGroupsRepresentation("GROUP1"))).when(identityWorker).getUserGroups(id);
+
+        mockMvc.perform(get("/api/users/{id}", id))
+                .andExpect(status().is(200))
+                .andExpect(content().string(containsString("\"email\":null")));
+        mockMvc.perform(get("/api/users/{id}", id).param("fields", "firstName,email"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.firstName").value("John"))
+                .andExpect(jsonPath("$.email").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testGetUserByIdRejectsUnknownFields() throws Exception {
+        mockMvc.perform(get("/api/users/{id}", UUID.randomUUID()).param("fields", "firstName,password"))
+                .andExpect(status().is(400));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testGetUserByIdETagChangesWithRoles() throws Exception {
+        UUID id = UUID.randomUUID();
+        doReturn(completedFuture(createUserRepresentation())).when(identityWorker).getUserById(id);
+        doReturn(completedFuture(createGroupsRepresentation("GROUP1"))).when(identityWorker).getUserGroups(id);
+        doReturn(completedFuture(createRolesRepresentation("ROLE_USER"))).when(identityWorker).getUserRoles(id);
+        String before = mockMvc.perform(get("/api/users/{id}", id))
+                .andReturn().getResponse().getHeader("ETag");
+        identityCache.evict(id);
+        doReturn(completedFuture(createRolesRepresentation("ROLE_ADMIN"))).when(identityWorker).getUserRoles(id);
+
+        mockMvc.perform(get("/api/users/{id}", id).header("If-None-Match", before))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.roles[0]").value("ROLE_ADMIN"))
+                .andExpect(header().string("ETag", not(before)));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testGetUserByIdRunsKeycloakCallsConcurrently() throws Exception {
+        UUID id = UUID.randomUUID();
+        long delayMillis = 300;
+        doAnswer(invocation -> delayed(delayMillis, createUserRepresentation())).when(identityWorker).getUserById(id);
+        doAnswer(invocation -> delayed(delayMillis, createRolesRepresentation("ROLE_USER"))).when(identityWorker).getUserRoles(id);
+        doAnswer(invocation -> delayed(delayMillis, createGroupsRepresentation("GROUP1"))).when(identityWorker).getUserGroups(id);
+
+        long start = System.nanoTime();
+        mockMvc.perform(get("/api/users/{id}", id))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.roles[0]").value("ROLE_USER"))
+                .andExpect(jsonPath("$.groups[0]").value("GROUP1"));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // sequential calls would take at least 3 * delayMillis
+        assertThat(elapsedMillis).isLessThan(2 * delayMillis);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testGetUserByIdKeycloakFailure() throws Exception {
+        UUID id = UUID.randomUUID();
+        doReturn(completedFuture(createUserRepresentation())).when(identityWorker).getUserById(id);
+        doReturn(completedFuture(createGroupsRepresentation("GROUP1"))).when(identityWorker).getUserGroups(id);
+        doReturn(failedFuture(new IllegalStateException("Keycloak is down"))).when(identityWorker).getUserRoles(id);
+
+        mockMvc.perform(get("/api/users/{id}", id))
+                .andExpect(status().is(500));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testCreateBatchFromNdjson() throws Exception {
+        doReturn(completedFuture("userId")).when(identityWorker).createUser(any());
+        doReturn(failedFuture(new WebApplicationException(409))).when(identityWorker)
+                .createUser(argThat(user -> user != null && "taken".equals(user.getUsername())));
+        String body = objectMapper.writeValueAsString(new UserRequest("first", "first@example.com", "password", "John", "Doe"))
+                + "\n" + objectMapper.writeValueAsString(new UserRequest("", "", "", "", ""))
+                + "\n" + objectMapper.writeValueAsString(new UserRequest("taken", "taken@example.com", "password", "John", "Doe"))
+                + "\n";
+
+        String results = mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().is(200))
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = results.lines().sorted().toList();
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).isEqualTo("{\"index\":0,\"id\":\"userId\"}");
+        assertThat(lines.get(1)).startsWith("{\"index\":1,\"status\":400,");
+        assertThat(lines.get(2)).startsWith("{\"index\":2,\"status\":409,");
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testCreateBatchFromJsonArray() throws Exception {
+        doReturn(completedFuture("userId")).when(identityWorker).createUser(any());
+        List<UserRequest> userRequests = List.of(
+                new UserRequest("first", "first@example.com", "password", "John", "Doe"),
+                new UserRequest("second", "second@example.com", "password", "Jane", "Doe"));
+
+        String results = mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequests)))
+                .andExpect(status().is(200))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(results.lines()).hasSize(2).allMatch(line -> line.contains("\"id\":\"userId\""));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = "USER")
+    void testCreateBatchUnauthorizedRoles() throws Exception {
+        mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{}"))
+                .andExpect(status().is(403));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testCreateUserWithIdempotencyKeyReplaysTheFirstResponse() throws Exception {
+        doReturn(completedFuture("userId")).when(identityWorker).createUser(any());
+        String key = UUID.randomUUID().toString();
+        UserRequest userRequest = new UserRequest("retried", "retried@example.com", "password", "John", "Doe");
+
+        mockMvc.perform(post("/api/users").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequest)))
+                .andExpect(status().is(200))
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        mockMvc.perform(post("/api/users").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequest)))
+                .andExpect(status().is(200))
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+
+        UserRequest otherRequest = new UserRequest("other", "other@example.com", "password", "John", "Doe");
+        mockMvc.perform(post("/api/users").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(otherRequest)))
+                .andExpect(status().is(422));
+        verify(identityWorker, times(1)).createUser(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testCreateUserWithUnknownKeycloakStatusIsBadGateway() throws Exception {
+        doReturn(failedFuture(new WebApplicationException(499))).when(identityWorker).createUser(any());
+
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UserRequest("username", "email@example.com", "password", "John", "Doe"))))
+                .andExpect(status().isBadGateway());
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testCreateUserWithIdempotencyKeyReplaysConflictsButRetriesServerErrors() throws Exception {
+        doReturn(failedFuture(new WebApplicationException(409))).when(identityWorker).createUser(any());
+        String conflictKey = UUID.randomUUID().toString();
+        String body = objectMapper.writeValueAsString(
+                new UserRequest("taken", "taken@example.com", "password", "John", "Doe"));
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/users").header("Idempotency-Key", conflictKey)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().is(409))
+                    .andExpect(i == 0
+                            ? header().doesNotExist("Idempotent-Replayed")
+                            : header().string("Idempotent-Replayed", "true"));
+        }
+        verify(identityWorker, times(1)).createUser(any());
+
+        doReturn(failedFuture(new WebApplicationException(503))).when(identityWorker).createUser(any());
+        String unavailableKey = UUID.randomUUID().toString();
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/users").header("Idempotency-Key", unavailableKey)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().is(503));
+        }
+        verify(identityWorker, times(3)).createUser(any());
+    }
+
+    @Test
+    void testIdempotencyKeyIsFreedWhenTheFirstCallThrowsAnError() {
+        String key = UUID.randomUUID().toString();
+
+        assertThatThrownBy(() -> idempotencyService.execute("user", key, "body", Void.class, () -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        long started = System.nanoTime();
+        assertThat(idempotencyService.execute("user", key, "body", Void.class, () -> ResponseEntity.ok().build())
+                .getStatusCode().value()).isEqualTo(200);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void testConcurrentRequestsWithTheSameIdempotencyKeyCreateOnce() throws Exception {
+        doAnswer(invocation -> delayed(300, "userId")).when(identityWorker).createUser(any());
+        String key = UUID.randomUUID().toString();
+        String body = objectMapper.writeValueAsString(
+                new UserRequest("concurrent", "concurrent@example.com", "password", "John", "Doe"));
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<Integer>> responses = Stream.generate(() -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return mockMvc.perform(post("/api/users").header("Idempotency-Key", key)
+                                        .with(user("user").roles("MODERATOR"))
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .content(body))
+                                .andReturn().getResponse().getStatus();
+                    } catch (Exception ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }, clients))
+                .limit(4)
+                .toList();
+
+        assertThat(responses).allSatisfy(response -> assertThat(response.join()).isEqualTo(200));
+        clients.shutdown();
+        verify(identityWorker, times(1)).createUser(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testGetUsersByIdsDeduplicatesAndReportsFailuresPerId() throws Exception {
+        UUID found = UUID.randomUUID();
+        UUID failing = UUID.randomUUID();
+        doReturn(completedFuture(createUserRepresentation())).when(identityWorker).getUserById(found);
+        doReturn(completedFuture(createRolesRepresentation("ROLE_USER"))).when(identityWorker).getUserRoles(found);
+        doReturn(completedFuture(createGroupsRepresentation("GROUP1"))).when(identityWorker).getUserGroups(found);
+        doReturn(failedFuture(new IllegalStateException("Keycloak is down"))).when(identityWorker).getUserById(failing);
+
+        mockMvc.perform(get("/api/users").param("ids", found.toString(), failing.toString(), found.toString()))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users['" + found + "'].email").value("johndoe@gmail.com"))
+                .andExpect(jsonPath("$.errors['" + failing + "'].status").value(500));
+
+        verify(identityWorker, times(1)).getUserById(found);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void testGetUsersByIdsRejectsTooManyIds() throws Exception {
+        String[] ids = Stream.generate(UUID::randomUUID).limit(101).map(UUID::toString).toArray(String[]::new);
+
+        mockMvc.perform(get("/api/users").param("ids", ids))
+                .andExpect(status().is(400));
+    }
+
     @Test
     public void testCreateUser_invalidRequest_shouldReturnBadRequest() throws Exception {
         UserRequest userRequest = new UserRequest(
@@ -167,6 +567,10 @@ public class UserControllerIntegrationTest extends BaseIntegrationTest {
         return JsonUtil.getObjectFromJson("json/userRepresentation_correct.json", UserRepresentation.class);
     }
 
+    private static <T> CompletableFuture<T> delayed(long delayMillis, T value) {
+        return CompletableFuture.supplyAsync(() -> value, CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS));
+    }
+
     private List<GroupRepresentation> createGroupsRepresentation(String nameOfGroup) {
         List<GroupRepresentation> groupsRepresentation = new ArrayList<>();
         var group = new GroupRepresentation();
@@ -0,0 +1,114 @@
+package com.itm.space.backendresources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.service.UserCreationQueue;
+import com.itm.space.backendresources.worker.IdentityWorker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.endsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {
+        "keycloak.create-queue.enabled=true",
+        "keycloak.create-queue.capacity=1",
+        "keycloak.create-queue.workers=1",
+        "keycloak.create-queue.max-rate=1000"
+})
+class UserCreationQueueIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private IdentityWorker identityWorker;
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void createIsAcceptedAndReportsTheUserId() throws Exception {
+        doReturn(completedFuture("created-id")).when(identityWorker).createUser(any());
+
+        ResultActions accepted = create("queued");
+        String id = jobId(accepted);
+        accepted.andExpect(header().string("Location", endsWith("/api/users/jobs/" + id)));
+
+        assertThat(awaitState("/api/users/jobs/" + id, "SUCCEEDED")).contains("\"userId\":\"created-id\"");
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    void fullQueueIsAnsweredWithTooManyRequests() throws Exception {
+        CompletableFuture<String> keycloak = new CompletableFuture<>();
+        doReturn(keycloak).when(identityWorker).createUser(any());
+
+        String running = "/api/users/jobs/" + jobId(create("first"));
+        awaitState(running, "RUNNING");
+        String queued = "/api/users/jobs/" + jobId(create("second"));
+        assertThat(meterRegistry.get("users.create.queue.depth").gauge().value()).isEqualTo(1);
+
+        create("third").andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+
+        keycloak.complete("created-id");
+        awaitState(running, "SUCCEEDED");
+        awaitState(queued, "SUCCEEDED");
+        assertThat(meterRegistry.get("users.create.jobs").tag("outcome", "rejected").counter().count())
+                .isGreaterThanOrEqualTo(1);
+        mvc.perform(get("/api/users/jobs/{id}", "unknown")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void zeroMaxRateIsRejectedAtStartup() {
+        assertThatThrownBy(() -> new UserCreationQueue(null, new SimpleMeterRegistry(), 1, 1, 1, 0,
+                Duration.ofHours(1), 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("keycloak.create-queue.max-rate must be positive, but is 0");
+    }
+
+    private ResultActions create(String username) throws Exception {
+        UserRequest userRequest = new UserRequest(username, username + "@example.com", "password", "John", "Doe");
+        return mvc.perform(requestWithContent(post("/api/users"), userRequest));
+    }
+
+    private String jobId(ResultActions result) throws Exception {
+        String body = result.andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("QUEUED"))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asText();
+    }
+
+    private String awaitState(String location, String state) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            String body = mvc.perform(get(location)).andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            if (body.contains("\"state\":\"" + state + "\"") || System.nanoTime() > deadline) {
+                assertThat(body).contains("\"state\":\"" + state + "\"");
+                return body;
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.itm.space.backendresources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.worker.IdentityWorker;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.ws.rs.WebApplicationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {
+        "keycloak.list.chunk-size=4",
+        "keycloak.list.max-size=100",
+        "keycloak.cache.roles.ttl=0s",
+        "keycloak.cache.groups.ttl=0s"
+})
+public class UserListingIntegrationTest extends BaseIntegrationTest {
+    private static final KeycloakStandIn keycloakStandIn = KeycloakStandIn.start();
+
+    static {
+        keycloakStandIn.setUserCount(23);
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+    @SpyBean
+    private IdentityWorker identityWorker;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.auth-server-url", keycloakStandIn::getServerUrl);
+    }
+
+    @AfterAll
+    static void stopKeycloakStandIn() {
+        keycloakStandIn.close();
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void cursorWalksAllUsersInPages() throws Exception {
+        List<String> usernames = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/users").param("size", "10");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = objectMapper.readTree(mvc.perform(request)
+                    .andExpect(status().is(200))
+                    .andReturn().getResponse().getContentAsString());
+            page.get("users").forEach(user -> {
+                usernames.add(user.get("username").asText());
+                assertThat(user.has("roles")).isFalse();
+            });
+            cursor = page.hasNonNull("nextCursor") ? page.get("nextCursor").asText() : null;
+            pages++;
+        } while (cursor != null && pages < 10);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(usernames).hasSize(23).doesNotHaveDuplicates().startsWith("user00001").endsWith("user00023");
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void searchMatchesUsernameOrEmailPrefix() throws Exception {
+        mvc.perform(get("/api/users").param("search", "user0001"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(10))
+                .andExpect(jsonPath("$.users[0].username").value("user00010"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        mvc.perform(get("/api/users").param("search", "user00007@example"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0].email").value("user00007@example.com"));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void rolesAndGroupsAreOnlyFetchedWhenAskedFor() throws Exception {
+        long adminRequestsBefore = keycloakStandIn.getAdminRequests();
+        mvc.perform(get("/api/users").param("size", "5"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(5))
+                .andExpect(jsonPath("$.users[0].roles").doesNotExist());
+        // two chunks of at most 4 users
+        assertThat(keycloakStandIn.getAdminRequests() - adminRequestsBefore).isEqualTo(2);
+
+        adminRequestsBefore = keycloakStandIn.getAdminRequests();
+        mvc.perform(get("/api/users").param("size", "5").param("enrich", "true"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(5))
+                .andExpect(jsonPath("$.users[0].roles[0]").value("MODERATOR"))
+                .andExpect(jsonPath("$.users[4].groups[0]").value("Moderators"));
+        assertThat(keycloakStandIn.getAdminRequests() - adminRequestsBefore).isEqualTo(2 + 5 * 2);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void failureAfterTheFirstChunkClosesTheDocumentWithAnError() throws Exception {
+        // the second chunk of 4 users starts at offset 4
+        doReturn(failedFuture(new WebApplicationException(503))).when(identityWorker).listUsers(any(), eq(4), anyInt());
+
+        JsonNode page = objectMapper.readTree(mvc.perform(get("/api/users").param("size", "10"))
+                .andExpect(status().is(200))
+                .andReturn().getResponse().getContentAsString());
+
+        assertThat(page.get("users")).hasSize(4);
+        assertThat(page.has("nextCursor")).isFalse();
+        assertThat(page.get("error").get("status").asInt()).isEqualTo(503);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void chunkThatNeverArrivesEndsTheDocumentAfterTheCallTimeout() throws Exception {
+        // as if the call were still queued on a saturated keycloakExecutor
+        doReturn(new CompletableFuture<>()).when(identityWorker).listUsers(any(), eq(4), anyInt());
+
+        JsonNode page = objectMapper.readTree(mvc.perform(get("/api/users").param("size", "10"))
+                .andExpect(status().is(200))
+                .andReturn().getResponse().getContentAsString());
+
+        assertThat(page.get("users")).hasSize(4);
+        assertThat(page.get("error").get("status").asInt()).isEqualTo(504);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void invalidCursorOrSizeIsRejected() throws Exception {
+        mvc.perform(get("/api/users").param("cursor", "not-a-cursor"))
+                .andExpect(status().is(400));
+        mvc.perform(get("/api/users").param("size", "101"))
+                .andExpect(status().is(400));
+    }
+}
@@ -0,0 +1,138 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.service.UserSearchService;
+import com.itm.space.backendresources.worker.IdentityWorker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {
+        "keycloak.search-index.enabled=true",
+        "keycloak.search-index.page-size=10",
+        "keycloak.search-index.delta-interval=1h"
+})
+public class UserSearchIndexIntegrationTest extends BaseIntegrationTest {
+    private static final KeycloakStandIn keycloakStandIn = KeycloakStandIn.start();
+
+    static {
+        keycloakStandIn.setUserCount(25);
+    }
+
+    @Autowired
+    private UserSearchService userSearchService;
+    @Autowired
+    private IdentityWorker identityWorker;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.auth-server-url", keycloakStandIn::getServerUrl);
+    }
+
+    @AfterAll
+    static void stopKeycloakStandIn() {
+        keycloakStandIn.close();
+    }
+
+    @BeforeEach
+    void awaitInitialLoad() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (userSearchService.getLag() == null && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(userSearchService.getLag()).isNotNull();
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void searchIsAnsweredFromTheIndex() throws Exception {
+        long adminRequestsBefore = keycloakStandIn.getAdminRequests();
+
+        mvc.perform(get("/api/users/search").param("q", "USER0001"))
+                .andExpect(status().is(200))
+                .andExpect(header().exists("Age"))
+                .andExpect(jsonPath("$.users.length()").value(10))
+                .andExpect(jsonPath("$.users[0].username").value("user00010"));
+        mvc.perform(get("/api/users/search").param("q", "0007@exa").param("mode", "substring"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0].email").value("user00007@example.com"));
+        mvc.perform(get("/api/users/search").param("q", "0007@exa"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(0));
+        mvc.perform(get("/api/users/search").param("q", "j").param("limit", "3"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(3));
+        mvc.perform(get("/api/users/search").param("q", "u").param("limit", "1"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users[0].username").value("user00001"));
+        mvc.perform(get("/api/users/search").param("q", "x"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(0));
+
+        assertThat(keycloakStandIn.getAdminRequests()).isEqualTo(adminRequestsBefore);
+        assertThat(meterRegistry.get("users.index.lag").gauge().value()).isNotNaN();
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void createdUserIsSearchableRightAway() throws Exception {
+        mvc.perform(requestWithContent(post("/api/users"),
+                        new UserRequest("zelda", "zelda@example.com", "password", "Zelda", "Hyrule")))
+                .andExpect(status().is(200));
+
+        mvc.perform(get("/api/users/search").param("q", "hyr").param("mode", "substring"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0].username").value("zelda"));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void deltaSyncAppliesAdminEvents() throws Exception {
+        // a cached lookup must not hide the change from the sync
+        identityWorker.getUserById(UUID.fromString(KeycloakStandIn.userId("user00003"))).join();
+        keycloakStandIn.updateEmail("user00003", "renamed@corp.example");
+        keycloakStandIn.deleteUser("user00004");
+
+        userSearchService.syncChanges();
+
+        mvc.perform(get("/api/users/search").param("q", "renamed"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users[0].username").value("user00003"));
+        mvc.perform(get("/api/users/search").param("q", "user00004"))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.users.length()").value(0));
+        assertThat(meterRegistry.get("users.index.sync").tag("type", "delta").tag("outcome", "success")
+                .timer().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"MODERATOR"})
+    void invalidSearchIsRejected() throws Exception {
+        mvc.perform(get("/api/users/search").param("q", " "))
+                .andExpect(status().is(400));
+        mvc.perform(get("/api/users/search").param("q", "user").param("mode", "fuzzy"))
+                .andExpect(status().is(400));
+        mvc.perform(get("/api/users/search").param("q", "user").param("limit", "1000"))
+                .andExpect(status().is(400));
+    }
+}
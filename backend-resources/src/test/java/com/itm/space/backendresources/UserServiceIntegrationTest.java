@@ -0,0 +1,84 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.service.LookupResult;
+import com.itm.space.backendresources.service.UserService;
+import com.itm.space.backendresources.util.JsonUtil;
+import com.itm.space.backendresources.worker.IdentityWorker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class UserServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private IdentityWorker identityWorker;
+
+    @Test
+    void concurrentLookupsOfSameUserAreCoalesced() throws Exception {
+        UUID id = UUID.randomUUID();
+        int callers = 20;
+        CountDownLatch release = new CountDownLatch(1);
+        UserRepresentation userRepresentation =
+                JsonUtil.getObjectFromJson("json/userRepresentation_correct.json", UserRepresentation.class);
+        doAnswer(invocation -> CompletableFuture.supplyAsync(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return userRepresentation;
+        })).when(identityWorker).getUserById(id);
+        doReturn(completedFuture(List.of())).when(identityWorker).getUserRoles(id);
+        doReturn(completedFuture(List.of())).when(identityWorker).getUserGroups(id);
+        double coalescedBefore = coalescedCount();
+
+        ExecutorService callerPool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<LookupResult<UserResponse>>> responses = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                responses.add(callerPool.submit(() -> userService.getUserById(id)));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<LookupResult<UserResponse>> response : responses) {
+                assertThat(response.get(5, TimeUnit.SECONDS).value().getEmail()).isEqualTo("johndoe@gmail.com");
+            }
+        } finally {
+            callerPool.shutdownNow();
+        }
+
+        verify(identityWorker, times(1)).getUserById(id);
+        verify(identityWorker, times(1)).getUserRoles(id);
+        verify(identityWorker, times(1)).getUserGroups(id);
+        assertThat(coalescedCount() - coalescedBefore).isEqualTo(callers - 1);
+    }
+
+    private double coalescedCount() {
+        return meterRegistry.get("keycloak.user.lookups").tag("coalesced", "true").counter().count();
+    }
+}
@@ -0,0 +1,127 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.worker.IdentityWorker;
+import com.itm.space.backendresources.worker.WebClientIdentityWorker;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.ws.rs.WebApplicationException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@TestPropertySource(properties = "keycloak.worker=webclient")
+public class WebClientIdentityWorkerIntegrationTest extends BaseIntegrationTest {
+    private static final KeycloakStandIn keycloakStandIn = KeycloakStandIn.start();
+
+    static {
+        keycloakStandIn.setUserCount(12);
+    }
+
+    @Autowired
+    private IdentityWorker identityWorker;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.auth-server-url", keycloakStandIn::getServerUrl);
+    }
+
+    @AfterEach
+    void resetErrors() {
+        keycloakStandIn.setErrorRate(0);
+    }
+
+    @AfterAll
+    static void stopKeycloakStandIn() {
+        keycloakStandIn.close();
+    }
+
+    @Test
+    void workerIsSelectedByProperty() {
+        assertThat(identityWorker).isInstanceOf(WebClientIdentityWorker.class);
+    }
+
+    @Test
+    void lookupsAreMappedFromAdminApi() {
+        UUID id = UUID.randomUUID();
+
+        UserRepresentation user = identityWorker.getUserById(id).join();
+        List<RoleRepresentation> roles = identityWorker.getUserRoles(id).join();
+        List<GroupRepresentation> groups = identityWorker.getUserGroups(id).join();
+
+        assertThat(user.getId()).isEqualTo(id.toString());
+        assertThat(user.getEmail()).isEqualTo("johndoe@gmail.com");
+        assertThat(roles).extracting(RoleRepresentation::getName).containsExactly("MODERATOR", "offline_access");
+        assertThat(groups).extracting(GroupRepresentation::getName).containsExactly("Moderators");
+    }
+
+    @Test
+    void listingIsPagedAndSearchedByPrefix() {
+        List<UserRepresentation> page = identityWorker.listUsers(null, 5, 4).join();
+        List<UserRepresentation> search = identityWorker.listUsers("user0001*", 0, 10).join();
+
+        assertThat(page).extracting(UserRepresentation::getUsername)
+                .containsExactly("user00006", "user00007", "user00008", "user00009");
+        assertThat(search).extracting(UserRepresentation::getUsername)
+                .containsExactly("user00010", "user00011", "user00012");
+    }
+
+    @Test
+    void createUserReturnsIdFromLocation() {
+        UserRepresentation user = new UserRepresentation();
+        user.setUsername("john");
+
+        String id = identityWorker.createUser(user).join();
+
+        assertThat(UUID.fromString(id)).isNotNull();
+    }
+
+    @Test
+    void clientCredentialsTokenIsReused() {
+        long tokenRequestsBefore = keycloakStandIn.getTokenRequests();
+
+        for (int i = 0; i < 5; i++) {
+            identityWorker.getUserById(UUID.randomUUID()).join();
+        }
+
+        assertThat(keycloakStandIn.getTokenRequests() - tokenRequestsBefore).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void keycloakErrorsSurfaceAsWebApplicationException() {
+        keycloakStandIn.setErrorRate(1.0);
+
+        assertThatThrownBy(() -> identityWorker.getUserById(UUID.randomUUID()).join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOfSatisfying(WebApplicationException.class,
+                        ex -> assertThat(ex.getResponse().getStatus()).isEqualTo(503));
+    }
+
+    @Test
+    void rejectedTokenIsReplacedOnNextCall() {
+        identityWorker.getUserById(UUID.randomUUID()).join();
+        long tokenRequestsBefore = keycloakStandIn.getTokenRequests();
+
+        keycloakStandIn.revokeTokens();
+
+        assertThatThrownBy(() -> identityWorker.getUserById(UUID.randomUUID()).join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOfSatisfying(WebApplicationException.class,
+                        ex -> assertThat(ex.getResponse().getStatus()).isEqualTo(401));
+        assertThat(identityWorker.getUserById(UUID.randomUUID()).join().getUsername()).isEqualTo("john");
+        assertThat(keycloakStandIn.getTokenRequests()).isGreaterThan(tokenRequestsBefore);
+    }
+}